@@ -0,0 +1,22 @@
+package com.reactivespring.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+
+@Configuration
+public class NettyServerConfig {
+
+    /**
+     * Spring Boot 2.4 only turns on HTTP/2 for Netty together with TLS. Without TLS, {@code server.http2.enabled}
+     * serves cleartext HTTP/2 (prior knowledge or upgrade) next to HTTP/1.1 on the same port, so movies-service
+     * can multiplex many calls over a few connections.
+     */
+    @Bean
+    @ConditionalOnExpression("${server.http2.enabled:false} and !${server.ssl.enabled:false}")
+    public NettyServerCustomizer h2cServerCustomizer() {
+        return httpServer -> httpServer.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C);
+    }
+}
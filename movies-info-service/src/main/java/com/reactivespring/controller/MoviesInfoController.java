@@ -1,9 +1,15 @@
 package com.reactivespring.controller;
 
+import com.mongodb.client.model.changestream.OperationType;
 import com.reactivespring.domain.MovieInfo;
-import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.domain.MovieInfoCursor;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.domain.MovieInfoSort;
+import com.reactivespring.service.MovieInfoEvents;
 import com.reactivespring.service.MovieInfoService;
+import com.reactivespring.util.OverflowStrategy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -13,38 +19,88 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import javax.validation.Valid;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/v1")
 @Slf4j
 public class MoviesInfoController {
-    private final MovieInfoRepository movieInfoRepository;
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
-    Sinks.Many<MovieInfo> moviesInfoSink = Sinks.many().replay().all();
+    @Value("${movieInfos.page.defaultLimit:100}")
+    private int defaultPageLimit;
 
-    public MoviesInfoController(MovieInfoService movieInfoService, MovieInfoRepository movieInfoRepository) {
+    @Value("${movieInfos.page.maxLimit:1000}")
+    private int maxPageLimit;
+
+    private final MovieInfoEvents movieInfoEvents;
+
+    public MoviesInfoController(MovieInfoService movieInfoService, MovieInfoEvents movieInfoEvents) {
         this.movieInfoService = movieInfoService;
-        this.movieInfoRepository = movieInfoRepository;
+        this.movieInfoEvents = movieInfoEvents;
     }
 
     private MovieInfoService movieInfoService;
 
+    /**
+     * One page of all movie infos: at most {@code limit} (default {@code movieInfos.page.defaultLimit}, capped at
+     * {@code movieInfos.page.maxLimit}) ordered by {@code sort} ({@code id} or {@code year}). When there are more,
+     * the {@value #NEXT_CURSOR_HEADER} header holds the cursor to pass as {@code after} for the next page.
+     */
     @GetMapping("/movieinfos")
-    public Flux<MovieInfo> getMovieInfoByYear(@RequestParam(value = "year", required = false) Optional<Integer> year) {
+    public Mono<ResponseEntity<List<MovieInfo>>> getMovieInfos(
+            @RequestParam(value = "limit", required = false) Optional<Integer> limit,
+            @RequestParam(value = "sort", required = false) Optional<String> sort,
+            @RequestParam(value = "after", required = false) Optional<String> after) {
+        var pageLimit = limit.map(this::pageLimit).orElse(defaultPageLimit);
+        var pageSort = sort.map(value -> badRequest(() -> MovieInfoSort.parse(value))).orElse(MovieInfoSort.ID);
+        var cursor = after.map(value -> badRequest(() -> MovieInfoCursor.decode(value, pageSort))).orElse(null);
+
+        // one movie info more than the page tells whether there is a next page
+        return movieInfoService.getMovieInfoPage(pageSort, cursor, pageLimit + 1)
+                .collectList()
+                .map(movieInfos -> {
+                    if (movieInfos.size() <= pageLimit) {
+                        return ResponseEntity.ok(movieInfos);
+                    }
+                    var page = movieInfos.subList(0, pageLimit);
+                    var next = MovieInfoCursor.after(pageSort, page.get(pageLimit - 1));
+                    return ResponseEntity.ok()
+                            .header(NEXT_CURSOR_HEADER, next.encode())
+                            .body(page);
+                });
+    }
+
+    private int pageLimit(int requested) {
+        if (requested <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit: must be a positive number");
+        }
+        return Math.min(requested, maxPageLimit);
+    }
+
+    @GetMapping(value = "/movieinfos", params = "year")
+    public Flux<MovieInfo> getMovieInfoByYear(@RequestParam("year") Integer year) {
         log.info("year is {}", year);
-        return year
-                .map(movieInfoService::getMovieInfoByYear)
-                .orElseGet(movieInfoRepository::findAll);
+        return movieInfoService.getMovieInfoByYear(year);
+    }
+
+    @GetMapping(value = "/movieinfos", params = "ids")
+    public Flux<MovieInfo> getMovieInfosByIds(@RequestParam("ids") List<String> ids) {
+        log.info("ids are {}", ids);
+        return movieInfoService.getMovieInfosByIds(ids);
     }
 
     @GetMapping("/movieinfos/{id}")
@@ -55,16 +111,43 @@ public class MoviesInfoController {
                 .log();
     }
 
+    /**
+     * Changed movie infos, see {@link MovieInfoEvents}, starting with the last {@code movieInfos.stream.replay.maxEvents} ones of the
+     * past {@code movieInfos.stream.replay.maxAge}. Every line carries its {@code sequence}; a client that
+     * reconnects with that sequence as {@code since} or as the {@value #LAST_EVENT_ID_HEADER} header only gets
+     * what it missed. Sequences are numbered by each instance on its own, from 1 after every start, so resuming
+     * only works against the instance that sent the sequence: behind a load balancer, a sequence from another
+     * instance resumes at an unrelated point and can skip or repeat changes. A client that reads too slowly is
+     * handled with {@code overflow} ({@code drop-oldest}, {@code latest} or {@code disconnect}), by default with
+     * {@code movieInfos.stream.overflow.strategy}.
+     */
     @GetMapping(value = "/movieinfos/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
-    public Flux<MovieInfo> getMovieInfos() {
-        return moviesInfoSink.asFlux().log();
+    public Flux<MovieInfoEvent> getMovieInfoEvents(@RequestParam(value = "since", required = false) Long since,
+                                                   @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false)
+                                                           Long lastEventId,
+                                                   @RequestParam(value = "overflow", required = false)
+                                                           String overflow) {
+        return movieInfoEvents.subscribe(since != null ? since : lastEventId, overflowStrategy(overflow))
+                .log();
+    }
+
+    private static OverflowStrategy overflowStrategy(String overflow) {
+        return overflow == null ? null : badRequest(() -> OverflowStrategy.parse(overflow));
+    }
+
+    private static <T> T badRequest(Supplier<T> parse) {
+        try {
+            return parse.get();
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
     }
 
     @PostMapping("/movieinfos")
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<MovieInfo> addMovieInfo(@RequestBody @Valid MovieInfo movieInfo) {
         return movieInfoService.addMovieInfo(movieInfo)
-                .doOnNext(savedMovieInfo -> moviesInfoSink.tryEmitNext(savedMovieInfo));
+                .doOnNext(savedMovieInfo -> movieInfoEvents.publish(OperationType.INSERT, savedMovieInfo));
     }
 
     @PutMapping("/movieinfos/{id}")
@@ -72,6 +155,7 @@ public class MoviesInfoController {
     public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo updatedMovieInfo, @PathVariable String id) {
         return movieInfoService
                 .updateMovieInfo(updatedMovieInfo, id)
+                .doOnNext(savedMovieInfo -> movieInfoEvents.publish(OperationType.UPDATE, savedMovieInfo))
                 .map(ResponseEntity.ok()::body)
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
                 .log();
@@ -80,6 +164,14 @@ public class MoviesInfoController {
     @DeleteMapping("/movieinfos/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public Mono<Void> deleteMovieInfoById(@PathVariable String id) {
-        return movieInfoService.deleteMovieInfoById(id);
+        return movieInfoService.deleteMovieInfoById(id)
+                .doOnNext(deletedMovieInfo -> movieInfoEvents.publish(OperationType.DELETE, deleted(id)))
+                .then();
+    }
+
+    private static MovieInfo deleted(String id) {
+        var movieInfo = new MovieInfo();
+        movieInfo.setMovieInfoId(id);
+        return movieInfo;
     }
 }
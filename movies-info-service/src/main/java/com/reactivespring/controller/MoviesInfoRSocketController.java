@@ -0,0 +1,90 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.service.MovieInfoService;
+import io.rsocket.exceptions.InvalidException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.handler.invocation.MethodArgumentResolutionException;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.util.List;
+
+/**
+ * RSocket routes mirroring {@link MoviesInfoController}, so callers get request-stream backpressure and
+ * multiplexing on one connection. Writes go through {@link MoviesInfoController} so that they reach the same
+ * movie info stream. A missing movie info completes empty, and a request that would be a 400 over HTTP fails with
+ * RSocket's INVALID error code, so that callers can tell it from a server failure.
+ */
+@Controller
+@Slf4j
+public class MoviesInfoRSocketController {
+
+    private final MovieInfoService movieInfoService;
+    private final MoviesInfoController moviesInfoController;
+
+    public MoviesInfoRSocketController(MovieInfoService movieInfoService, MoviesInfoController moviesInfoController) {
+        this.movieInfoService = movieInfoService;
+        this.moviesInfoController = moviesInfoController;
+    }
+
+    @MessageMapping("movieinfos")
+    public Flux<MovieInfo> getAllMovieInfos() {
+        return movieInfoService.getAllMovieInfos();
+    }
+
+    @MessageMapping("movieinfos.year.{year}")
+    public Flux<MovieInfo> getMovieInfoByYear(@DestinationVariable Integer year) {
+        return movieInfoService.getMovieInfoByYear(year);
+    }
+
+    @MessageMapping("movieinfos.ids")
+    public Flux<MovieInfo> getMovieInfosByIds(@Payload List<String> ids) {
+        log.info("ids are {}", ids);
+        return movieInfoService.getMovieInfosByIds(ids);
+    }
+
+    /**
+     * The movie info stream of {@link MoviesInfoController#getMovieInfoEvents}, resuming after the sequence sent as
+     * data, if any.
+     */
+    @MessageMapping("movieinfos.stream")
+    public Flux<MovieInfoEvent> getMovieInfoEvents(@Payload(required = false) Long since) {
+        return moviesInfoController.getMovieInfoEvents(since, null, null);
+    }
+
+    @MessageMapping("movieinfos.{id}")
+    public Mono<MovieInfo> getMovieInfoById(@DestinationVariable String id) {
+        return movieInfoService.getMovieInfoById(id);
+    }
+
+    @MessageMapping("movieinfos.add")
+    public Mono<MovieInfo> addMovieInfo(@Payload @Valid MovieInfo movieInfo) {
+        return moviesInfoController.addMovieInfo(movieInfo);
+    }
+
+    @MessageMapping("movieinfos.update.{id}")
+    public Mono<MovieInfo> updateMovieInfo(@Payload MovieInfo updatedMovieInfo, @DestinationVariable String id) {
+        return moviesInfoController.updateMovieInfo(updatedMovieInfo, id)
+                .flatMap(response -> Mono.justOrEmpty(response.getBody()));
+    }
+
+    @MessageMapping("movieinfos.delete.{id}")
+    public Mono<Void> deleteMovieInfoById(@DestinationVariable String id) {
+        return moviesInfoController.deleteMovieInfoById(id);
+    }
+
+    @MessageExceptionHandler({MethodArgumentResolutionException.class, ConversionException.class})
+    public void invalidRequest(Exception ex) {
+        log.info("Invalid request: {}", ex.getMessage());
+        throw new InvalidException(ex.getMessage());
+    }
+}
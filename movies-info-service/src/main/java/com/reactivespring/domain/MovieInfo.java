@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.NotBlank;
@@ -16,10 +18,14 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+// findByYear and the year sorted pages; created by MongoIndexCreator
+@CompoundIndex(name = "year_id", def = "{ 'year': 1, '_id': 1 }")
 public class MovieInfo {
     @Id
     private String movieInfoId;
     @NotBlank(message = "movieInfo.name must be present")
+    // not unique, remakes share their title
+    @Indexed
     private String name;
     @NotNull
     @Positive(message = "movieInfo.year must be a positive value")
@@ -0,0 +1,44 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position after the last movie info of a page: the sort it belongs to and the sort key of that movie info. Encoded
+ * as an opaque URL-safe token, so clients pass it back without interpreting it.
+ */
+@Data
+@AllArgsConstructor
+public class MovieInfoCursor {
+
+    private MovieInfoSort sort;
+    // only set for MovieInfoSort.YEAR
+    private Integer year;
+    private String movieInfoId;
+
+    public static MovieInfoCursor after(MovieInfoSort sort, MovieInfo movieInfo) {
+        return new MovieInfoCursor(sort, sort == MovieInfoSort.YEAR ? movieInfo.getYear() : null,
+                movieInfo.getMovieInfoId());
+    }
+
+    public String encode() {
+        var key = sort.name() + "|" + (year == null ? "" : year) + "|" + movieInfoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MovieInfoCursor decode(String cursor, MovieInfoSort sort) {
+        try {
+            var parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 3);
+            if (parts.length == 3 && MovieInfoSort.valueOf(parts[0]) == sort && !parts[2].isEmpty()
+                    && parts[1].isEmpty() == (sort != MovieInfoSort.YEAR)) {
+                return new MovieInfoCursor(sort, parts[1].isEmpty() ? null : Integer.valueOf(parts[1]), parts[2]);
+            }
+        } catch (IllegalArgumentException ex) {
+            // reported below
+        }
+        throw new IllegalArgumentException("after: not a cursor of a " + sort.name().toLowerCase() + " sorted page");
+    }
+}
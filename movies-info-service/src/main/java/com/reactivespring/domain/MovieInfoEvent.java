@@ -0,0 +1,23 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of the movie info stream: the movie info with its position in the stream, which a client passes back
+ * as {@code since} or {@code Last-Event-ID} to resume, and the change that produced it: {@code insert},
+ * {@code update}, {@code replace} or {@code delete}. A deleted movie info only carries its id. Readers of plain
+ * MovieInfo ignore the extra fields.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoEvent {
+
+    private long sequence;
+    private String operation;
+    @JsonUnwrapped
+    private MovieInfo movieInfo;
+}
@@ -0,0 +1,32 @@
+package com.reactivespring.domain;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.Locale;
+
+/**
+ * Orders of a movie info page. Every order ends with the movie info id, so that it is total and a page can resume
+ * right after the last movie info of the previous one.
+ */
+public enum MovieInfoSort {
+    ID(Sort.by(Sort.Direction.ASC, "movieInfoId")),
+    YEAR(Sort.by(Sort.Direction.ASC, "year").and(Sort.by(Sort.Direction.ASC, "movieInfoId")));
+
+    private final Sort sort;
+
+    MovieInfoSort(Sort sort) {
+        this.sort = sort;
+    }
+
+    public Sort toSort() {
+        return sort;
+    }
+
+    public static MovieInfoSort parse(String sort) {
+        try {
+            return valueOf(sort.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("sort: must be one of id, year");
+        }
+    }
+}
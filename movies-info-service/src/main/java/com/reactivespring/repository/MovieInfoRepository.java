@@ -1,6 +1,7 @@
 package com.reactivespring.repository;
 
 import com.reactivespring.domain.MovieInfo;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -9,4 +10,13 @@ public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo,
     Flux<MovieInfo> findByYear(Integer year);
 
     Mono<MovieInfo> findByName(String name);
+
+    // keyset pages, see MovieInfoService#getMovieInfoPage; the pageable only carries the sort and the limit
+    Flux<MovieInfo> findAllBy(Pageable pageable);
+
+    Flux<MovieInfo> findByMovieInfoIdGreaterThan(String movieInfoId, Pageable pageable);
+
+    Flux<MovieInfo> findByYearGreaterThan(Integer year, Pageable pageable);
+
+    Flux<MovieInfo> findByYearAndMovieInfoIdGreaterThan(Integer year, String movieInfoId, Pageable pageable);
 }
@@ -0,0 +1,128 @@
+package com.reactivespring.service;
+
+import com.mongodb.client.model.changestream.OperationType;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link MovieInfoEvents} driven by one MongoDB change stream on the movie info collection, selected with
+ * {@code movieInfos.stream.source=changeStream}, so that every instance streams inserts, updates and deletes no
+ * matter which instance, or which other writer, made them. All subscribers of an instance share the one cursor.
+ * When the cursor fails it is reopened after the last resume token seen, so no change is skipped as long as it is
+ * still in the oplog. Change streams need MongoDB 3.6 or later running as a replica set. Every instance numbers the
+ * changes it streams on its own, so the same change has a different sequence on every instance, and a
+ * {@code since} is only meaningful to the instance that sent it.
+ */
+@Component
+@ConditionalOnProperty(name = "movieInfos.stream.source", havingValue = "changeStream")
+@Slf4j
+public class MovieInfoChangeStream extends MovieInfoEvents {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final AtomicReference<BsonValue> resumeToken = new AtomicReference<>();
+    private Disposable cursor;
+
+    public MovieInfoChangeStream(@Value("${movieInfos.stream.replay.maxEvents:1000}") int replayMaxEvents,
+                                 @Value("${movieInfos.stream.replay.maxAge:10m}") Duration replayMaxAge,
+                                 @Value("${movieInfos.stream.overflow.strategy:disconnect}") String overflowStrategy,
+                                 @Value("${movieInfos.stream.overflow.bufferSize:256}") int overflowBufferSize,
+                                 MeterRegistry meterRegistry, ReactiveMongoTemplate mongoTemplate,
+                                 @Value("${movieInfos.stream.changeStream.minBackoff:1s}") Duration minBackoff,
+                                 @Value("${movieInfos.stream.changeStream.maxBackoff:30s}") Duration maxBackoff) {
+        super(replayMaxEvents, replayMaxAge, overflowStrategy, overflowBufferSize, meterRegistry);
+        this.mongoTemplate = mongoTemplate;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Writes reach the stream through the change stream, published here they would show up twice.
+     */
+    @Override
+    public void publish(OperationType operation, MovieInfo movieInfo) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (cursor == null) {
+            cursor = changes()
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, minBackoff)
+                            .maxBackoff(maxBackoff)
+                            .doBeforeRetry(signal -> log.warn("Movie info change stream failed, reopening: {}",
+                                    signal.failure().toString())))
+                    .repeat()
+                    .subscribe(this::onChange);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (cursor != null) {
+            cursor.dispose();
+            cursor = null;
+        }
+    }
+
+    /**
+     * Opens the cursor after the last resume token on every (re)subscription. Only an invalidate, after the
+     * collection was dropped or renamed, ends it; there is nothing to resume after that, so the next cursor starts
+     * at the current time.
+     */
+    private Flux<ChangeStreamEvent<MovieInfo>> changes() {
+        return Flux.defer(() -> {
+            var options = ChangeStreamOptions.builder().returnFullDocumentOnUpdate();
+            var token = resumeToken.get();
+            if (token != null) {
+                options.resumeAfter(token);
+            }
+            log.info("Opening movie info change stream after {}", token);
+            return mongoTemplate.changeStream(mongoTemplate.getCollectionName(MovieInfo.class), options.build(),
+                    MovieInfo.class);
+        });
+    }
+
+    private void onChange(ChangeStreamEvent<MovieInfo> change) {
+        var operation = change.getOperationType();
+        if (operation == OperationType.INVALIDATE) {
+            resumeToken.set(null);
+            return;
+        }
+        resumeToken.set(change.getResumeToken());
+        if (operation == OperationType.INSERT || operation == OperationType.UPDATE
+                || operation == OperationType.REPLACE) {
+            emit(operation, change.getBody());
+        } else if (operation == OperationType.DELETE) {
+            emit(operation, deleted(change));
+        }
+    }
+
+    private static MovieInfo deleted(ChangeStreamEvent<MovieInfo> change) {
+        var raw = change.getRaw();
+        var id = raw == null ? null : raw.getDocumentKey().get("_id");
+        var movieInfo = new MovieInfo();
+        if (id != null) {
+            movieInfo.setMovieInfoId(id.isObjectId() ? id.asObjectId().getValue().toHexString()
+                    : id.asString().getValue());
+        }
+        return movieInfo;
+    }
+}
@@ -0,0 +1,60 @@
+package com.reactivespring.service;
+
+import com.mongodb.client.model.changestream.OperationType;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.util.OverflowStrategy;
+import com.reactivespring.util.ReplayBuffer;
+import com.reactivespring.util.StreamSubscribers;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+
+/**
+ * Source of the movie info stream. By default it only sees the writes made through this instance's controllers,
+ * which publish them here; see {@link MovieInfoChangeStream} for deployments with several instances. The last
+ * {@code movieInfos.stream.replay.maxEvents} events of the past {@code movieInfos.stream.replay.maxAge} are
+ * replayed to new subscribers. Each subscriber reads through its own buffer of
+ * {@code movieInfos.stream.overflow.bufferSize} events, see {@link StreamSubscribers}.
+ */
+@Component
+@ConditionalOnProperty(name = "movieInfos.stream.source", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class MovieInfoEvents {
+
+    private final ReplayBuffer<MovieInfoEvent> buffer;
+    private final StreamSubscribers subscribers;
+
+    public MovieInfoEvents(@Value("${movieInfos.stream.replay.maxEvents:1000}") int replayMaxEvents,
+                           @Value("${movieInfos.stream.replay.maxAge:10m}") Duration replayMaxAge,
+                           @Value("${movieInfos.stream.overflow.strategy:disconnect}") String overflowStrategy,
+                           @Value("${movieInfos.stream.overflow.bufferSize:256}") int overflowBufferSize,
+                           MeterRegistry meterRegistry) {
+        this.buffer = new ReplayBuffer<>(replayMaxEvents, replayMaxAge);
+        this.subscribers = new StreamSubscribers("movieinfos", OverflowStrategy.parse(overflowStrategy),
+                overflowBufferSize, meterRegistry);
+    }
+
+    public void publish(OperationType operation, MovieInfo movieInfo) {
+        emit(operation, movieInfo);
+    }
+
+    /**
+     * Events after sequence {@code since}, or all retained ones when it is null, followed by live ones. A
+     * subscriber that falls behind is handled with {@code overflow}, or the configured strategy when it is null.
+     */
+    public Flux<MovieInfoEvent> subscribe(Long since, OverflowStrategy overflow) {
+        return subscribers.subscribe(buffer.subscribe(since), overflow)
+                .map(event -> new MovieInfoEvent(event.getSequence(), event.getEvent().getOperation(),
+                        event.getEvent().getMovieInfo()));
+    }
+
+    protected void emit(OperationType operation, MovieInfo movieInfo) {
+        buffer.publish(new MovieInfoEvent(0, operation.getValue(), movieInfo));
+    }
+}
@@ -1,14 +1,24 @@
 package com.reactivespring.service;
 
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoCursor;
+import com.reactivespring.domain.MovieInfoSort;
 import com.reactivespring.repository.MovieInfoRepository;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.function.Function;
+
 @Service
 public class MovieInfoService {
 
+    // the smallest ObjectId; "greater than" it matches every generated id
+    private static final String MIN_OBJECT_ID = new ObjectId(new byte[12]).toHexString();
+
     public MovieInfoService(MovieInfoRepository movieInfoRepository) {
         this.movieInfoRepository = movieInfoRepository;
     }
@@ -23,6 +33,39 @@ public class MovieInfoService {
         return movieInfoRepository.findAll();
     }
 
+    /**
+     * At most {@code limit} movie infos ordered by {@code sort}, starting right after {@code after} or at the
+     * beginning when it is null. Every page is a range scan from the cursor, so it costs the same however deep it is.
+     */
+    public Flux<MovieInfo> getMovieInfoPage(MovieInfoSort sort, MovieInfoCursor after, int limit) {
+        var pageable = PageRequest.of(0, limit, sort.toSort());
+        if (after == null) {
+            return movieInfoRepository.findAllBy(pageable);
+        }
+        if (sort == MovieInfoSort.YEAR) {
+            // (year, id) > (after.year, after.id): the rest of the year, then the later years
+            return Flux.concat(
+                            idsAfter(after.getMovieInfoId(), id -> movieInfoRepository
+                                    .findByYearAndMovieInfoIdGreaterThan(after.getYear(), id, pageable)),
+                            movieInfoRepository.findByYearGreaterThan(after.getYear(), pageable))
+                    .take(limit);
+        }
+        return idsAfter(after.getMovieInfoId(), id -> movieInfoRepository.findByMovieInfoIdGreaterThan(id, pageable))
+                .take(limit);
+    }
+
+    /**
+     * Ids that are valid ObjectIds are stored as ObjectIds, all others as strings, and MongoDB orders every string
+     * before every ObjectId but only compares values of the same type. So after a string id come the greater strings
+     * and then all ObjectIds.
+     */
+    private static Flux<MovieInfo> idsAfter(String movieInfoId, Function<String, Flux<MovieInfo>> idGreaterThan) {
+        if (ObjectId.isValid(movieInfoId)) {
+            return idGreaterThan.apply(movieInfoId);
+        }
+        return Flux.concat(idGreaterThan.apply(movieInfoId), idGreaterThan.apply(MIN_OBJECT_ID));
+    }
+
     public Flux<MovieInfo> getMovieInfoByYear(Integer year) {
         return movieInfoRepository.findByYear(year);
     }
@@ -31,6 +74,10 @@ public class MovieInfoService {
         return movieInfoRepository.findById(id);
     }
 
+    public Flux<MovieInfo> getMovieInfosByIds(List<String> ids) {
+        return movieInfoRepository.findAllById(ids);
+    }
+
 
     public Mono<MovieInfo> updateMovieInfo(MovieInfo movieInfo, String id) {
         return movieInfoRepository
@@ -45,7 +92,12 @@ public class MovieInfoService {
                 });
     }
 
-    public Mono<Void> deleteMovieInfoById(String id) {
-        return movieInfoRepository.deleteById(id);
+    /**
+     * Emits the deleted movie info, or completes empty when there was none with this id.
+     */
+    public Mono<MovieInfo> deleteMovieInfoById(String id) {
+        return movieInfoRepository
+                .findById(id)
+                .flatMap(movieInfo -> movieInfoRepository.delete(movieInfo).thenReturn(movieInfo));
     }
 }
@@ -0,0 +1,67 @@
+package com.reactivespring.util;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+/**
+ * Multicasts events to every subscriber and keeps the most recent ones, at most {@code maxEvents} and none older
+ * than {@code maxAge}, for subscribers that connect later. Events are numbered 1, 2, 3... so that a subscriber that
+ * reconnects can resume right after the last event it saw instead of reading everything again.
+ */
+@Slf4j
+public class ReplayBuffer<T> {
+
+    private final Sinks.Many<Sequenced<T>> sink;
+    private long lastSequence;
+
+    public ReplayBuffer(int maxEvents, Duration maxAge) {
+        this(maxEvents, maxAge, Schedulers.parallel());
+    }
+
+    public ReplayBuffer(int maxEvents, Duration maxAge, Scheduler scheduler) {
+        this.sink = Sinks.many().replay().limit(maxEvents, maxAge, scheduler);
+    }
+
+    /**
+     * Synchronized, so that concurrent publishers get increasing sequence numbers in emission order and never race
+     * each other into the sink.
+     */
+    public synchronized Sequenced<T> publish(T event) {
+        var sequenced = new Sequenced<>(++lastSequence, event);
+        var result = sink.tryEmitNext(sequenced);
+        if (result.isFailure()) {
+            log.warn("Event {} not published: {}", lastSequence, result);
+        }
+        return sequenced;
+    }
+
+    /**
+     * The retained events after sequence {@code since}, or all retained events when it is null, followed by live
+     * ones. When events after {@code since} were already evicted the stream starts at the oldest retained event.
+     * A {@code since} beyond {@link #lastSequence()} was numbered before a restart reset the sequence, so all retained
+     * events are replayed rather than skipping everything up to it.
+     */
+    public Flux<Sequenced<T>> subscribe(Long since) {
+        return Flux.defer(() -> {
+            var events = sink.asFlux();
+            if (since == null) {
+                return events;
+            }
+            if (since > lastSequence()) {
+                log.info("Sequence {} is ahead of the last event {}, replaying all retained events",
+                        since, lastSequence());
+                return events;
+            }
+            return events.filter(event -> event.getSequence() > since);
+        });
+    }
+
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+}
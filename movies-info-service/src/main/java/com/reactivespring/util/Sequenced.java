@@ -0,0 +1,12 @@
+package com.reactivespring.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class Sequenced<T> {
+
+    private long sequence;
+    private T event;
+}
@@ -0,0 +1,104 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Gives every subscriber of a shared stream its own bounded buffer, so that a slow subscriber neither slows down
+ * the others nor keeps events of the shared sink reachable, and applies an {@link OverflowStrategy} when that
+ * buffer is full. Publishes {@code stream.subscribers}, {@code stream.subscriber.lag} (events received but not yet
+ * read, per subscriber), {@code stream.dropped} and {@code stream.evicted}, all tagged with the stream name.
+ */
+@Slf4j
+public class StreamSubscribers {
+
+    private final String stream;
+    private final OverflowStrategy defaultStrategy;
+    private final int bufferSize;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final Counter evicted;
+
+    public StreamSubscribers(String stream, OverflowStrategy defaultStrategy, int bufferSize,
+                             MeterRegistry meterRegistry) {
+        this.stream = stream;
+        this.defaultStrategy = defaultStrategy;
+        this.bufferSize = bufferSize;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("stream.subscribers", subscribers, AtomicInteger::get)
+                .tag("stream", stream)
+                .register(meterRegistry);
+        this.evicted = meterRegistry.counter("stream.evicted", "stream", stream);
+    }
+
+    /**
+     * One subscriber's view of {@code events}, with the default strategy when {@code strategy} is null. A
+     * disconnected subscriber sees the stream complete.
+     */
+    public <T> Flux<T> subscribe(Flux<T> events, OverflowStrategy strategy) {
+        var overflowStrategy = strategy == null ? defaultStrategy : strategy;
+        var dropped = meterRegistry.counter("stream.dropped", "stream", stream,
+                "strategy", overflowStrategy.value());
+        return Flux.defer(() -> {
+            var subscriber = String.valueOf(subscriberIds.incrementAndGet());
+            var lag = new AtomicLong();
+            var lagGauge = Gauge.builder("stream.subscriber.lag", lag, AtomicLong::get)
+                    .tags("stream", stream, "subscriber", subscriber)
+                    .register(meterRegistry);
+            subscribers.incrementAndGet();
+            Consumer<T> onDrop = event -> {
+                lag.decrementAndGet();
+                dropped.increment();
+            };
+            var received = events.doOnNext(event -> lag.incrementAndGet());
+            Flux<T> buffered;
+            switch (overflowStrategy) {
+                case LATEST:
+                    buffered = received.onBackpressureBuffer(1, onDrop, BufferOverflowStrategy.DROP_OLDEST);
+                    break;
+                case DROP_OLDEST:
+                    buffered = received.onBackpressureBuffer(bufferSize, onDrop, BufferOverflowStrategy.DROP_OLDEST);
+                    break;
+                default:
+                    buffered = disconnectWhenBehind(received, lag, behind -> {
+                        log.info("Disconnecting subscriber {} of {}, {} events behind", subscriber, stream, behind);
+                        dropped.increment(behind);
+                        evicted.increment();
+                    });
+            }
+            return buffered
+                    .doOnNext(event -> lag.decrementAndGet())
+                    .doFinally(signal -> {
+                        subscribers.decrementAndGet();
+                        meterRegistry.remove(lagGauge);
+                    });
+        });
+    }
+
+    /**
+     * Completes the subscriber as soon as more than {@code bufferSize} events wait for it. An overflowing
+     * {@code onBackpressureBuffer} would only signal its error after the subscriber read the buffered events, which a
+     * stalled client never does.
+     */
+    private <T> Flux<T> disconnectWhenBehind(Flux<T> received, AtomicLong lag, Consumer<Long> onDisconnect) {
+        var behind = Sinks.<Long>one();
+        return received
+                .doOnNext(event -> {
+                    if (lag.get() > bufferSize) {
+                        behind.tryEmitValue(lag.get());
+                    }
+                })
+                .onBackpressureBuffer()
+                .takeUntilOther(behind.asMono().doOnNext(onDisconnect));
+    }
+}
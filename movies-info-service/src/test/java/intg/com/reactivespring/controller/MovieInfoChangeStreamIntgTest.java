@@ -0,0 +1,153 @@
+package com.reactivespring.controller;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.service.MovieInfoEvents;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Runs the embedded MongoDB as a single-node replica set, which change streams need, and writes straight to the
+ * database like another instance would.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@TestPropertySource(properties = {
+        "movieInfos.stream.source = changeStream",
+        "movieInfos.stream.changeStream.minBackoff = 100ms",
+        "movieInfos.stream.changeStream.maxBackoff = 500ms",
+        "spring.mongodb.embedded.version = 4.0.2",
+        "spring.mongodb.embedded.storage.repl-set-name = rs0"
+})
+class MovieInfoChangeStreamIntgTest {
+
+    public static final String MOVIES_INFO_URL = "/v1/movieinfos";
+
+    @Autowired
+    MovieInfoRepository movieInfoRepository;
+
+    @Autowired
+    ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    MongoClient mongoClient;
+
+    @Autowired
+    MovieInfoEvents movieInfoEvents;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Value("${local.mongo.port}")
+    int mongoPort;
+
+    @BeforeAll
+    static void beforeAll() {
+        System.setProperty("os.arch", "x86_64");
+    }
+
+    @BeforeEach
+    void setup() {
+        initiateReplicaSet();
+        awaitChangeStream();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieInfoRepository.deleteAll().block();
+    }
+
+    @Test
+    void getMovieInfoEvents_streamsWritesOfOtherInstances() {
+        // given
+        var movieInfo = new MovieInfo("changeStream", "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        var moviesStreamFlux = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/stream")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfoEvent.class)
+                .getResponseBody()
+                .filter(event -> movieInfo.getMovieInfoId().equals(event.getMovieInfo().getMovieInfoId()));
+
+        // when
+        var writes = movieInfoRepository.save(movieInfo)
+                .then(mongoTemplate.updateFirst(query(where("_id").is(movieInfo.getMovieInfoId())),
+                        Update.update("name", "Batman Begins again"), MovieInfo.class))
+                .then(movieInfoRepository.deleteById(movieInfo.getMovieInfoId()));
+
+        // then
+        StepVerifier.create(moviesStreamFlux)
+                .then(writes::subscribe)
+                .assertNext(event -> {
+                    assertEquals("insert", event.getOperation());
+                    assertEquals("Batman Begins", event.getMovieInfo().getName());
+                })
+                .assertNext(event -> {
+                    assertEquals("update", event.getOperation());
+                    assertEquals("Batman Begins again", event.getMovieInfo().getName());
+                })
+                .assertNext(event -> assertEquals("delete", event.getOperation()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    private void initiateReplicaSet() {
+        var config = new Document("_id", "rs0")
+                .append("members", List.of(new Document("_id", 0).append("host", "localhost:" + mongoPort)));
+        var admin = mongoClient.getDatabase("admin");
+        Mono.from(admin.runCommand(new Document("replSetInitiate", config)))
+                .onErrorResume(MongoCommandException.class, ex -> ex.getErrorCode() == 23 // AlreadyInitialized
+                        ? Mono.empty()
+                        : Mono.error(ex))
+                .block();
+        Mono.defer(() -> Mono.from(admin.runCommand(new Document("isMaster", 1))))
+                .filter(isMaster -> isMaster.getBoolean("ismaster", false))
+                .repeatWhenEmpty(attempts -> attempts.delayElements(Duration.ofMillis(100)))
+                .block(Duration.ofSeconds(30));
+    }
+
+    /**
+     * The cursor is opened asynchronously once the replica set has a primary, so writes are probed until one of
+     * them shows up in the stream.
+     */
+    private void awaitChangeStream() {
+        var probe = new MovieInfo("probe", "Probe", 2000, List.of("Probe"), LocalDate.parse("2000-01-01"));
+        var probed = movieInfoEvents.subscribe(null, null)
+                .filter(event -> probe.getMovieInfoId().equals(event.getMovieInfo().getMovieInfoId()))
+                .next();
+        Flux.interval(Duration.ofMillis(200))
+                .concatMap(tick -> movieInfoRepository.save(probe))
+                .takeUntilOther(probed)
+                .blockLast(Duration.ofSeconds(30));
+    }
+}
@@ -6,9 +6,12 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -16,8 +19,11 @@ import org.springframework.web.util.UriComponentsBuilder;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -97,6 +103,60 @@ class MoviesInfoControllerIntgTest {
                 .hasSize(3);
     }
 
+    @Test
+    void getAllMovieInfos_smile() {
+        // given
+        var smile = MediaType.parseMediaType("application/x-jackson-smile");
+        // when
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL)
+                .accept(smile, MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .contentTypeCompatibleWith(smile)
+                .expectBodyList(MovieInfo.class)
+                .hasSize(3);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"id", "year"})
+    void getAllMovieInfos_pagesThroughAllMovieInfos(String sort) {
+        // given
+        var movieInfos = new ArrayList<MovieInfo>();
+        String cursor = null;
+
+        // when
+        do {
+            var after = cursor;
+            var result = webTestClient
+                    .get()
+                    .uri(uriBuilder -> uriBuilder.path(MOVIES_INFO_URL)
+                            .queryParam("limit", "1")
+                            .queryParam("sort", sort)
+                            .queryParamIfPresent("after", Optional.ofNullable(after))
+                            .build())
+                    .exchange()
+                    .expectStatus()
+                    .is2xxSuccessful()
+                    .expectBodyList(MovieInfo.class)
+                    .hasSize(1)
+                    .returnResult();
+            movieInfos.addAll(result.getResponseBody());
+            cursor = result.getResponseHeaders().getFirst(MoviesInfoController.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        // then
+        // "abc" is stored as a string, the generated ids as ObjectIds
+        assertEquals(3, movieInfos.stream().map(MovieInfo::getMovieInfoId).distinct().count());
+        if (sort.equals("year")) {
+            assertEquals(List.of(2005, 2008, 2012),
+                    movieInfos.stream().map(MovieInfo::getYear).collect(Collectors.toList()));
+        }
+    }
+
     @Test
     void getAllMovieInfos_stream() {
         // given
@@ -156,6 +216,27 @@ class MoviesInfoControllerIntgTest {
 
     }
 
+    @Test
+    void getMovieInfosByIds() {
+        // given
+        var uri = UriComponentsBuilder
+                .fromUriString(MOVIES_INFO_URL)
+                .queryParam("ids", "abc,unknown")
+                .buildAndExpand()
+                .toUri();
+
+        // when
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                // then
+                .hasSize(1);
+    }
+
     @Test
     void getMovieInfoById() {
         // given
@@ -0,0 +1,150 @@
+package com.reactivespring.repository;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.reactivespring.domain.MovieInfo;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs every MovieInfoRepository query, records the commands they send and explains each of them, failing when a
+ * winning plan reads the whole collection instead of an index.
+ */
+@DataMongoTest
+@ActiveProfiles("test")
+@Import({MongoIndexCreator.class, MovieInfoIndexIntgTest.QueryRecorder.class})
+class MovieInfoIndexIntgTest {
+
+    @Autowired
+    MovieInfoRepository movieInfoRepository;
+
+    @Autowired
+    ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    MongoIndexCreator mongoIndexCreator;
+
+    @Autowired
+    QueryRecorder queryRecorder;
+
+    @BeforeAll
+    static void beforeAll() {
+        System.setProperty("os.arch", "x86_64");
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongoIndexCreator.createIndexes().block();
+        var movieInfos = new ArrayList<MovieInfo>();
+        for (int i = 0; i < 50; i++) {
+            movieInfos.add(new MovieInfo(null, "Movie " + i, 2000 + i % 10, List.of("Christian Bale"),
+                    LocalDate.parse("2005-06-15")));
+        }
+        movieInfoRepository.saveAll(movieInfos).blockLast();
+        queryRecorder.commands.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieInfoRepository.deleteAll().block();
+    }
+
+    @Test
+    void repositoryQueriesUseIndexes() {
+        // given
+        var byId = PageRequest.of(0, 10, Sort.by("movieInfoId"));
+        var byYear = PageRequest.of(0, 10, Sort.by("year", "movieInfoId"));
+        var someId = movieInfoRepository.findAllBy(byId).blockFirst().getMovieInfoId();
+
+        // when
+        movieInfoRepository.findByYear(2005).blockLast();
+        movieInfoRepository.findByName("Movie 5").block();
+        movieInfoRepository.findByMovieInfoIdGreaterThan(someId, byId).blockLast();
+        movieInfoRepository.findByYearGreaterThan(2005, byYear).blockLast();
+        movieInfoRepository.findByYearAndMovieInfoIdGreaterThan(2005, someId, byYear).blockLast();
+
+        // then
+        assertEquals(6, queryRecorder.commands.size());
+        queryRecorder.commands.forEach(command -> {
+            var plans = winningPlans(mongoTemplate.executeCommand(explain(command)).block());
+            assertFalse(plans.isEmpty(), command::toJson);
+            plans.forEach(plan -> assertFalse(plan.contains("COLLSCAN"), () -> command.toJson() + " -> " + plan));
+        });
+    }
+
+    /**
+     * The recorded command without the fields the driver adds to every command. Aggregations are explained with
+     * their explain flag, which every Mongo version we run against accepts.
+     */
+    private static Document explain(BsonDocument command) {
+        var query = Document.parse(command.toJson());
+        query.keySet().removeIf(key -> key.startsWith("$") || key.equals("lsid") || key.equals("txnNumber"));
+        if (query.containsKey("aggregate")) {
+            query.remove("cursor");
+            return query.append("explain", true);
+        }
+        return new Document("explain", query).append("verbosity", "queryPlanner");
+    }
+
+    private static List<String> winningPlans(Object explained) {
+        var plans = new ArrayList<String>();
+        if (explained instanceof Document) {
+            var document = (Document) explained;
+            document.forEach((key, value) -> {
+                if (key.equals("winningPlan")) {
+                    plans.add(((Document) value).toJson());
+                } else {
+                    plans.addAll(winningPlans(value));
+                }
+            });
+        } else if (explained instanceof List) {
+            ((List<?>) explained).forEach(value -> plans.addAll(winningPlans(value)));
+        }
+        return plans;
+    }
+
+    @TestConfiguration
+    static class QueryRecorder {
+
+        private static final Set<String> QUERIES = Set.of("find", "aggregate");
+
+        final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer queryRecordingCustomizer() {
+            return settings -> settings.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    if (QUERIES.contains(event.getCommandName())
+                            && "movieInfo".equals(event.getCommand().getString(event.getCommandName()).getValue())) {
+                        // the event's document is only valid during the callback
+                        commands.add(BsonDocument.parse(event.getCommand().toJson()));
+                    }
+                }
+            });
+        }
+    }
+}
@@ -1,16 +1,23 @@
 package com.reactivespring.controller;
 
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoCursor;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.domain.MovieInfoSort;
 import com.reactivespring.repository.MovieInfoRepository;
+import com.reactivespring.service.MovieInfoEvents;
 import com.reactivespring.service.MovieInfoService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -20,6 +27,7 @@ import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MoviesInfoController.class)
+@Import({MovieInfoEvents.class, SimpleMeterRegistry.class})
 @AutoConfigureWebTestClient
 public class MoviesInfoControllerUnitTest {
     public static final String MOVIES_INFO_URL = "/v1/movieinfos";
@@ -33,6 +41,9 @@ public class MoviesInfoControllerUnitTest {
     @MockBean
     private MovieInfoRepository movieInfoRepository;
 
+    @Autowired
+    private MovieInfoEvents movieInfoEvents;
+
     @Test
     void getAllMoviesInfo() {
         // given
@@ -44,8 +55,8 @@ public class MoviesInfoControllerUnitTest {
                         2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
 
         // when
-        when(movieInfoServiceMock.getAllMovieInfos()).thenReturn(Flux.fromIterable(movieInfo));
-        when(movieInfoRepository.findAll()).thenReturn(Flux.fromIterable(movieInfo));
+        when(movieInfoServiceMock.getMovieInfoPage(MovieInfoSort.ID, null, 101))
+                .thenReturn(Flux.fromIterable(movieInfo));
 
         // then
         webTestClient
@@ -54,10 +65,68 @@ public class MoviesInfoControllerUnitTest {
                 .exchange()
                 .expectStatus()
                 .is2xxSuccessful()
+                .expectHeader()
+                .doesNotExist(MoviesInfoController.NEXT_CURSOR_HEADER)
                 .expectBodyList(MovieInfo.class)
                 .hasSize(3);
     }
 
+    @Test
+    void getAllMoviesInfo_nextCursor() {
+        // given
+        var movieInfo = List.of(new MovieInfo("abc", "Batman Begins",
+                        2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo("def", "The Dark Knight",
+                        2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")),
+                new MovieInfo("ghi", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+        when(movieInfoServiceMock.getMovieInfoPage(MovieInfoSort.YEAR, null, 3))
+                .thenReturn(Flux.fromIterable(movieInfo));
+        when(movieInfoServiceMock.getMovieInfoPage(MovieInfoSort.YEAR,
+                new MovieInfoCursor(MovieInfoSort.YEAR, 2008, "def"), 3))
+                .thenReturn(Flux.fromIterable(movieInfo.subList(2, 3)));
+
+        // when
+        var next = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?limit=2&sort=year")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2)
+                .returnResult()
+                .getResponseHeaders()
+                .getFirst(MoviesInfoController.NEXT_CURSOR_HEADER);
+
+        // then
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?limit=2&sort=year&after={after}", next)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .doesNotExist(MoviesInfoController.NEXT_CURSOR_HEADER)
+                .expectBodyList(MovieInfo.class)
+                .value(movieInfos -> assertEquals("ghi", movieInfos.get(0).getMovieInfoId()));
+    }
+
+    @Test
+    void getAllMoviesInfo_cursorOfOtherSort() {
+        // given
+        var after = new MovieInfoCursor(MovieInfoSort.ID, null, "abc").encode();
+
+        // when
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?sort=year&after={after}", after)
+                .exchange()
+                // then
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void addMovieInfo() {
         // given
@@ -139,6 +208,110 @@ public class MoviesInfoControllerUnitTest {
 
     }
 
+    @Test
+    void getMovieInfosByIds() {
+        // given
+        var movieInfo = List.of(new MovieInfo("abc", "Dark Knight Rises",
+                        2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")),
+                new MovieInfo("def", "The Dark Knight",
+                        2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")));
+
+        // when
+        when(movieInfoServiceMock.getMovieInfosByIds(List.of("abc", "def"))).thenReturn(Flux.fromIterable(movieInfo));
+
+        // then
+        webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "?ids={ids}", "abc,def")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void updateMovieInfo_publishedToStream() {
+        // given
+        var movieInfoId = "abc";
+        var movieInfo = new MovieInfo(movieInfoId, "Dark Knight Rises Again",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        when(movieInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class)))
+                .thenReturn(Mono.just(movieInfo));
+
+        // when
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful();
+
+        // then
+        var moviesStreamFlux = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/stream")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseBody()
+                .filter(m -> movieInfoId.equals(m.getMovieInfoId()));
+
+        StepVerifier.create(moviesStreamFlux)
+                .assertNext(m -> assertEquals("Dark Knight Rises Again", m.getName()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void getMovieInfoEvents_resumesAfterLastEventId() {
+        // given
+        var first = new MovieInfo("first", "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        var second = new MovieInfo("second", "The Dark Knight",
+                2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18"));
+        when(movieInfoServiceMock.updateMovieInfo(isA(MovieInfo.class), isA(String.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        List.of(first, second).forEach(movieInfo -> webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfo.getMovieInfoId())
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful());
+        var firstSequence = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/stream")
+                .exchange()
+                .returnResult(MovieInfoEvent.class)
+                .getResponseBody()
+                .filter(event -> "first".equals(event.getMovieInfo().getMovieInfoId()))
+                .blockFirst()
+                .getSequence();
+
+        // when
+        var moviesStreamFlux = webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/stream")
+                .header(MoviesInfoController.LAST_EVENT_ID_HEADER, String.valueOf(firstSequence))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfoEvent.class)
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(moviesStreamFlux)
+                .assertNext(event -> {
+                    assertEquals(firstSequence + 1, event.getSequence());
+                    assertEquals("The Dark Knight", event.getMovieInfo().getName());
+                })
+                .thenCancel()
+                .verify();
+    }
+
     @Test
     void deleteMovieInfoById() {
         // given
@@ -156,4 +329,27 @@ public class MoviesInfoControllerUnitTest {
                 .expectBody(Void.class);
     }
 
+    @Test
+    void deleteMovieInfoById_publishesOnlyActualDeletes() {
+        // given
+        var deleted = new MovieInfo("deleted", "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        when(movieInfoServiceMock.deleteMovieInfoById("missing")).thenReturn(Mono.empty());
+        when(movieInfoServiceMock.deleteMovieInfoById("deleted")).thenReturn(Mono.just(deleted));
+
+        // when
+        List.of("missing", "deleted").forEach(movieInfoId -> webTestClient
+                .delete()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .isNoContent());
+
+        // then
+        StepVerifier.create(movieInfoEvents.subscribe(null, null)
+                        .filter(event -> "delete".equals(event.getOperation())))
+                .assertNext(event -> assertEquals("deleted", event.getMovieInfo().getMovieInfoId()))
+                .thenCancel()
+                .verify();
+    }
 }
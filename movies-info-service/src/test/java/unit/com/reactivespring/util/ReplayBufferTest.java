@@ -0,0 +1,84 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplayBufferTest {
+
+    @Test
+    void subscribe_replaysAtMostMaxEvents() {
+        // given
+        var buffer = new ReplayBuffer<String>(2, Duration.ofMinutes(10));
+
+        // when
+        buffer.publish("a");
+        buffer.publish("b");
+        buffer.publish("c");
+
+        // then
+        StepVerifier.create(buffer.subscribe(null))
+                .expectNext(new Sequenced<>(2, "b"), new Sequenced<>(3, "c"))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void subscribe_dropsEventsOlderThanMaxAge() {
+        // given
+        var scheduler = VirtualTimeScheduler.create();
+        var buffer = new ReplayBuffer<String>(10, Duration.ofMinutes(10), scheduler);
+
+        // when
+        buffer.publish("a");
+        scheduler.advanceTimeBy(Duration.ofMinutes(11));
+        buffer.publish("b");
+
+        // then
+        StepVerifier.create(buffer.subscribe(null))
+                .expectNext(new Sequenced<>(2, "b"))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void subscribe_resumesAfterSince() {
+        // given
+        var buffer = new ReplayBuffer<String>(10, Duration.ofMinutes(10), Schedulers.immediate());
+        buffer.publish("a");
+        buffer.publish("b");
+
+        // when
+        var events = buffer.subscribe(1L);
+        buffer.publish("c");
+
+        // then
+        StepVerifier.create(events)
+                .expectNext(new Sequenced<>(2, "b"), new Sequenced<>(3, "c"))
+                .thenCancel()
+                .verify();
+        assertEquals(3, buffer.lastSequence());
+    }
+
+    @Test
+    void subscribe_sinceAheadOfLastSequenceReplaysAll() {
+        // given
+        var buffer = new ReplayBuffer<String>(10, Duration.ofMinutes(10), Schedulers.immediate());
+        buffer.publish("a");
+        buffer.publish("b");
+
+        // when
+        var events = buffer.subscribe(42L);
+
+        // then
+        StepVerifier.create(events)
+                .expectNext(new Sequenced<>(1, "a"), new Sequenced<>(2, "b"))
+                .thenCancel()
+                .verify();
+    }
+}
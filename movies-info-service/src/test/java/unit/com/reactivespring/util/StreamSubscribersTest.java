@@ -0,0 +1,89 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static reactor.core.publisher.Sinks.EmitFailureHandler.FAIL_FAST;
+
+class StreamSubscribersTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StreamSubscribers subscribers = new StreamSubscribers("test", OverflowStrategy.DISCONNECT, 2,
+            meterRegistry);
+    private final Sinks.Many<Integer> sink = Sinks.many().multicast().directBestEffort();
+
+    @Test
+    void subscribe_dropOldestKeepsNewestEvents() {
+        // given
+        var events = subscribers.subscribe(sink.asFlux(), OverflowStrategy.DROP_OLDEST);
+
+        // when
+        StepVerifier.create(events, 0)
+                .then(() -> {
+                    for (int i = 1; i <= 5; i++) {
+                        sink.emitNext(i, FAIL_FAST);
+                    }
+                    assertEquals(2, lag());
+                })
+                .thenRequest(2)
+                // then
+                .expectNext(4, 5)
+                .thenCancel()
+                .verify();
+        assertEquals(3, dropped("drop-oldest"));
+    }
+
+    @Test
+    void subscribe_latestKeepsOnlyNewestEvent() {
+        // given
+        var events = subscribers.subscribe(sink.asFlux(), OverflowStrategy.LATEST);
+
+        // when
+        StepVerifier.create(events, 0)
+                .then(() -> {
+                    for (int i = 1; i <= 5; i++) {
+                        sink.emitNext(i, FAIL_FAST);
+                    }
+                })
+                .thenRequest(5)
+                // then
+                .expectNext(5)
+                .then(() -> sink.emitNext(6, FAIL_FAST))
+                .expectNext(6)
+                .thenCancel()
+                .verify();
+        assertEquals(4, dropped("latest"));
+    }
+
+    @Test
+    void subscribe_disconnectsSubscriberThatFallsBehind() {
+        // given
+        var events = subscribers.subscribe(sink.asFlux(), null);
+
+        // when
+        StepVerifier.create(events, 0)
+                .then(() -> {
+                    assertEquals(1, meterRegistry.get("stream.subscribers").gauge().value());
+                    for (int i = 1; i <= 3; i++) {
+                        sink.emitNext(i, FAIL_FAST);
+                    }
+                })
+                // then
+                .verifyComplete();
+        assertEquals(1, meterRegistry.get("stream.evicted").counter().count());
+        assertEquals(0, meterRegistry.get("stream.subscribers").gauge().value());
+        assertNull(meterRegistry.find("stream.subscriber.lag").gauge());
+    }
+
+    private double lag() {
+        return meterRegistry.get("stream.subscriber.lag").gauge().value();
+    }
+
+    private double dropped(String strategy) {
+        return meterRegistry.get("stream.dropped").tag("strategy", strategy).counter().count();
+    }
+}
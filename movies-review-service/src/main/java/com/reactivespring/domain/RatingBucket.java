@@ -0,0 +1,20 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One row of the review summary aggregation: the reviews of a movie whose rating floors to {@code rating}
+ * ({@code null} for unrated reviews).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingBucket {
+
+    private Long movieInfoId;
+    private Integer rating;
+    private long count;
+    private double ratingSum;
+}
@@ -5,6 +5,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.Min;
@@ -14,6 +16,12 @@ import javax.validation.constraints.NotNull;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+// the reviews of some movies by id or rating, and of all movies by rating; created by MongoIndexCreator
+@CompoundIndexes({
+        @CompoundIndex(name = "movieInfoId_id", def = "{ 'movieInfoId': 1, '_id': 1 }"),
+        @CompoundIndex(name = "movieInfoId_rating_id", def = "{ 'movieInfoId': 1, 'rating': -1, '_id': 1 }"),
+        @CompoundIndex(name = "rating_id", def = "{ 'rating': -1, '_id': 1 }")
+})
 public class Review {
 
     @Id
@@ -0,0 +1,115 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Running totals of the reviews of one movie, kept up to date with {@code $inc} deltas on every review write so that
+ * a summary is a single document read.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document
+public class ReviewAggregate {
+
+    @Id
+    private Long movieInfoId;
+    private long count;
+    private long ratedCount;
+    private double ratingSum;
+    // reviews per rating rounded down, keyed by the rating as a string since Mongo field names are strings
+    private Map<String, Long> histogram;
+    // incremented by every delta, so that reconciliation does not overwrite a delta applied while it recomputes
+    private long version;
+
+    public static ReviewAggregate empty(Long movieInfoId) {
+        return new ReviewAggregate(movieInfoId, 0, 0, 0.0, Map.of(), 0);
+    }
+
+    public static ReviewAggregate of(Long movieInfoId, Collection<RatingBucket> buckets) {
+        var aggregate = empty(movieInfoId);
+        var histogram = new HashMap<String, Long>();
+        for (var bucket : buckets) {
+            aggregate.count += bucket.getCount();
+            if (bucket.getRating() != null) {
+                aggregate.ratedCount += bucket.getCount();
+                aggregate.ratingSum += bucket.getRatingSum();
+                histogram.put(String.valueOf(bucket.getRating()), bucket.getCount());
+            }
+        }
+        aggregate.histogram = histogram;
+        return aggregate;
+    }
+
+    /**
+     * The field increments that turn the aggregate of a movie without {@code removed} into one with {@code added},
+     * both reviews of that movie and either one null. Fields that do not change are left out.
+     */
+    public static Map<String, Number> deltas(Review removed, Review added) {
+        var deltas = new HashMap<String, Number>();
+        if (removed != null) {
+            addDeltas(deltas, removed, -1);
+        }
+        if (added != null) {
+            addDeltas(deltas, added, 1);
+        }
+        deltas.values().removeIf(delta -> delta.doubleValue() == 0);
+        return deltas;
+    }
+
+    private static void addDeltas(Map<String, Number> deltas, Review review, int sign) {
+        deltas.merge("count", (long) sign, ReviewAggregate::sum);
+        if (review.getRating() != null) {
+            deltas.merge("ratedCount", (long) sign, ReviewAggregate::sum);
+            deltas.merge("ratingSum", sign * review.getRating(), ReviewAggregate::sum);
+            deltas.merge("histogram." + bucket(review.getRating()), (long) sign, ReviewAggregate::sum);
+        }
+    }
+
+    private static Number sum(Number left, Number right) {
+        return left instanceof Long
+                ? (Number) (left.longValue() + right.longValue())
+                : (Number) (left.doubleValue() + right.doubleValue());
+    }
+
+    private static int bucket(double rating) {
+        return (int) Math.floor(rating);
+    }
+
+    /**
+     * Same totals, ignoring empty histogram buckets and the rounding drift of summing ratings in a different order.
+     */
+    public boolean hasSameTotals(ReviewAggregate other) {
+        return count == other.count
+                && ratedCount == other.ratedCount
+                && Math.abs(ratingSum - other.ratingSum) <= 1e-6 * Math.max(1, Math.abs(ratingSum))
+                && Objects.equals(nonEmptyBuckets(), other.nonEmptyBuckets());
+    }
+
+    private Map<Integer, Long> nonEmptyBuckets() {
+        var buckets = new TreeMap<Integer, Long>();
+        if (histogram != null) {
+            histogram.forEach((rating, reviews) -> {
+                if (reviews != 0) {
+                    buckets.put(Integer.valueOf(rating), reviews);
+                }
+            });
+        }
+        return buckets;
+    }
+
+    public ReviewSummary toSummary() {
+        return new ReviewSummary(movieInfoId, count, ratedCount == 0 ? null : ratingSum / ratedCount,
+                nonEmptyBuckets());
+    }
+}
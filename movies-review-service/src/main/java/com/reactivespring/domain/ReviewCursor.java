@@ -0,0 +1,43 @@
+package com.reactivespring.domain;
+
+import com.reactivespring.exception.ReviewDataException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position after the last review of a page: the sort it belongs to and the sort key of that review. Encoded as an
+ * opaque URL-safe token, so clients pass it back without interpreting it.
+ */
+@Data
+@AllArgsConstructor
+public class ReviewCursor {
+
+    private ReviewSort sort;
+    // only set for ReviewSort.RATING
+    private Double rating;
+    private String reviewId;
+
+    public static ReviewCursor after(ReviewSort sort, Review review) {
+        return new ReviewCursor(sort, sort == ReviewSort.RATING ? review.getRating() : null, review.getReviewId());
+    }
+
+    public String encode() {
+        var key = sort.name() + "|" + (rating == null ? "" : rating) + "|" + reviewId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ReviewCursor decode(String cursor, ReviewSort sort) {
+        try {
+            var parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 3);
+            if (parts.length == 3 && ReviewSort.valueOf(parts[0]) == sort && !parts[2].isEmpty()) {
+                return new ReviewCursor(sort, parts[1].isEmpty() ? null : Double.valueOf(parts[1]), parts[2]);
+            }
+        } catch (IllegalArgumentException ex) {
+            // reported below
+        }
+        throw new ReviewDataException("after: not a cursor of a " + sort.name().toLowerCase() + " sorted page");
+    }
+}
@@ -0,0 +1,35 @@
+package com.reactivespring.domain;
+
+import com.reactivespring.exception.ReviewDataException;
+import org.springframework.data.domain.Sort;
+
+import java.util.Locale;
+
+/**
+ * Orders of a review page. Every order ends with the review id, so that it is total and a page can resume right after
+ * the last review of the previous one.
+ */
+public enum ReviewSort {
+    ID(Sort.by(Sort.Direction.ASC, "_id")),
+    // generated ids are ObjectIds, which start with their creation time
+    NEWEST(Sort.by(Sort.Direction.DESC, "_id")),
+    RATING(Sort.by(Sort.Direction.DESC, "rating").and(Sort.by(Sort.Direction.ASC, "_id")));
+
+    private final Sort sort;
+
+    ReviewSort(Sort sort) {
+        this.sort = sort;
+    }
+
+    public Sort toSort() {
+        return sort;
+    }
+
+    public static ReviewSort parse(String sort) {
+        try {
+            return valueOf(sort.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new ReviewDataException("sort: must be one of id, newest, rating");
+        }
+    }
+}
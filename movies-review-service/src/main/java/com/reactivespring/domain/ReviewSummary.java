@@ -0,0 +1,20 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummary {
+
+    private Long movieInfoId;
+    private long count;
+    // mean of the rated reviews, null when none is rated
+    private Double averageRating;
+    // number of reviews per rating rounded down, unrated reviews are only counted in count
+    private Map<Integer, Long> histogram;
+}
@@ -1,10 +1,19 @@
 package com.reactivespring.handler;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewAggregate;
+import com.reactivespring.domain.ReviewCursor;
+import com.reactivespring.domain.ReviewSort;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exception.ReviewDataException;
+import com.reactivespring.repository.ReviewAggregateRepository;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.util.OverflowStrategy;
+import com.reactivespring.util.StreamSubscribers;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -16,31 +25,85 @@ import reactor.core.publisher.Sinks;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class ReviewHandler {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     Sinks.Many<Review> reviewSink = Sinks.many().replay().latest();
 
+    @Value("${reviews.page.defaultLimit:100}")
+    private int defaultPageLimit;
+
+    @Value("${reviews.page.maxLimit:1000}")
+    private int maxPageLimit;
+
     private ReviewReactiveRepository reviewReactiveRepository;
+    private ReviewAggregateRepository reviewAggregateRepository;
+    private StreamSubscribers reviewStreamSubscribers;
 
     @Autowired
     private Validator validator;
 
-    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository) {
+    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository,
+                         ReviewAggregateRepository reviewAggregateRepository,
+                         @Value("${reviews.stream.overflow.strategy:disconnect}") String overflowStrategy,
+                         @Value("${reviews.stream.overflow.bufferSize:256}") int overflowBufferSize,
+                         MeterRegistry meterRegistry) {
         this.reviewReactiveRepository = reviewReactiveRepository;
+        this.reviewAggregateRepository = reviewAggregateRepository;
+        this.reviewStreamSubscribers = new StreamSubscribers("reviews", OverflowStrategy.parse(overflowStrategy),
+                overflowBufferSize, meterRegistry);
     }
 
     public Mono<ServerResponse> addReview(ServerRequest request) {
         return request.bodyToMono(Review.class)
                 .doOnNext(this::validate)
-                .flatMap(reviewReactiveRepository::save)
+                .flatMap(this::saveReview)
                 .doOnNext(reviewSink::tryEmitNext)
                 .flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue);
     }
 
-    private void validate(Review review) {
+    /**
+     * Every review write below takes the previous version of the review from the write itself and then applies the
+     * difference to the aggregate of the movie, so concurrent writes to the same review or movie are counted exactly
+     * once. A crash between the two writes is repaired by the ReviewAggregateReconciler, which makes the aggregates
+     * eventually consistent rather than exact.
+     */
+    Mono<Review> saveReview(Review review) {
+        if (review.getReviewId() == null) {
+            return reviewReactiveRepository.save(review)
+                    .flatMap(saved -> reviewAggregateRepository.applyDelta(null, saved).thenReturn(saved));
+        }
+        return reviewReactiveRepository.findAndReplace(review)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(previous -> reviewAggregateRepository.applyDelta(previous.orElse(null), review))
+                .thenReturn(review);
+    }
+
+    Mono<Review> updateReviewById(String reviewId, Review update) {
+        return reviewReactiveRepository.findAndUpdate(reviewId, update.getComment(), update.getRating())
+                .flatMap(previous -> {
+                    var updated = new Review(reviewId, previous.getMovieInfoId(), update.getComment(),
+                            update.getRating());
+                    return reviewAggregateRepository.applyDelta(previous, updated).thenReturn(updated);
+                });
+    }
+
+    Mono<Review> deleteReviewById(String reviewId) {
+        return reviewReactiveRepository.findAndRemove(reviewId)
+                .flatMap(removed -> reviewAggregateRepository.applyDelta(removed, null).thenReturn(removed));
+    }
+
+    void validate(Review review) {
         var constraintViolations = validator.validate(review);
         log.info("constraintViolations: {}", constraintViolations);
         if (!constraintViolations.isEmpty()) {
@@ -51,54 +114,123 @@ public class ReviewHandler {
         }
     }
 
+    /**
+     * One page of the reviews of {@code movieInfoIds}, {@code movieInfoId} or of all movies: at most {@code limit}
+     * reviews (default {@code reviews.page.defaultLimit}, capped at {@code reviews.page.maxLimit}) ordered by
+     * {@code sort} ({@code id}, {@code newest} or {@code rating}). When there are more, the
+     * {@value #NEXT_CURSOR_HEADER} header holds the cursor to pass as {@code after} for the next page.
+     */
     public Mono<ServerResponse> getReviews(ServerRequest request) {
-        var movieInfoId = request.queryParam("movieInfoId");
-        return movieInfoId.map(id -> {
-                    var reviews = reviewReactiveRepository.findReviewsByMovieInfoId(Long.valueOf(id));
-                    return buildReviewsResponse(reviews);
-                })
-                .orElseGet(() -> {
-                    var reviews = reviewReactiveRepository.findAll();
-                    return buildReviewsResponse(reviews);
+        var limit = request.queryParam("limit")
+                .map(ReviewHandler::parseLimit)
+                .map(requested -> Math.min(requested, maxPageLimit))
+                .orElse(defaultPageLimit);
+        var sort = request.queryParam("sort").map(ReviewSort::parse).orElse(ReviewSort.ID);
+        var after = request.queryParam("after").map(cursor -> ReviewCursor.decode(cursor, sort)).orElse(null);
+        var movieInfoIds = request.queryParam("movieInfoIds")
+                .map(ReviewHandler::parseIds)
+                .or(() -> request.queryParam("movieInfoId").map(id -> Set.of(Long.valueOf(id))))
+                .orElse(null);
+
+        // one review more than the page tells whether there is a next page
+        return reviewReactiveRepository.findPage(movieInfoIds, sort, after, limit + 1)
+                .collectList()
+                .flatMap(reviews -> {
+                    if (reviews.size() <= limit) {
+                        return ServerResponse.ok().bodyValue(reviews);
+                    }
+                    var page = reviews.subList(0, limit);
+                    var next = ReviewCursor.after(sort, page.get(limit - 1));
+                    return ServerResponse.ok()
+                            .header(NEXT_CURSOR_HEADER, next.encode())
+                            .bodyValue(page);
                 });
     }
 
-    private static Mono<ServerResponse> buildReviewsResponse(Flux<Review> reviews) {
-        return ServerResponse.ok().body(reviews, Review.class);
+    private static int parseLimit(String limit) {
+        try {
+            var requested = Integer.parseInt(limit);
+            if (requested > 0) {
+                return requested;
+            }
+        } catch (NumberFormatException ex) {
+            // reported below
+        }
+        throw new ReviewDataException("limit: must be a positive number");
+    }
+
+    private static Set<Long> parseIds(String movieInfoIds) {
+        return Arrays.stream(movieInfoIds.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(Long::valueOf)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Count, mean rating and rating histogram of one movie ({@code movieInfoId}) or of many
+     * ({@code movieInfoIds}), with a zero-count summary for movies without reviews. Read from the maintained
+     * aggregates, one document per movie however many reviews it has.
+     */
+    public Mono<ServerResponse> getReviewSummary(ServerRequest request) {
+        var movieInfoIds = request.queryParam("movieInfoIds");
+        if (movieInfoIds.isPresent()) {
+            return ServerResponse.ok().body(summarize(parseIds(movieInfoIds.get())), ReviewSummary.class);
+        }
+        return request.queryParam("movieInfoId")
+                .map(id -> summarize(Set.of(Long.valueOf(id)))
+                        .next()
+                        .flatMap(ServerResponse.ok()::bodyValue))
+                .orElseGet(() -> ServerResponse.badRequest().bodyValue("movieInfoId or movieInfoIds is required"));
+    }
+
+    Flux<ReviewSummary> summarize(Collection<Long> movieInfoIds) {
+        return reviewAggregateRepository.findAllById(movieInfoIds)
+                .collectMap(ReviewAggregate::getMovieInfoId)
+                .flatMapIterable(aggregates -> movieInfoIds.stream()
+                        .map(id -> aggregates.getOrDefault(id, ReviewAggregate.empty(id)).toSummary())
+                        .collect(Collectors.toList()));
     }
 
     public Mono<ServerResponse> updateReview(ServerRequest request) {
         var reviewId = request.pathVariable("id");
-        var existingReview = reviewReactiveRepository.findById(reviewId);
-        // .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given reviewId: " + reviewId)));
-        return existingReview
-                .flatMap(review -> request.bodyToMono(Review.class)
-                        .map(reqReview -> {
-                            review.setComment(reqReview.getComment());
-                            review.setRating(reqReview.getRating());
-                            return reqReview;
-                        }))
-                .flatMap(reviewReactiveRepository::save)
+        return request.bodyToMono(Review.class)
+                .flatMap(reqReview -> updateReviewById(reviewId, reqReview))
                 .flatMap(savedReview -> ServerResponse.ok().bodyValue(savedReview))
                 .switchIfEmpty(ServerResponse.notFound().build());
     }
 
     public Mono<ServerResponse> deleteReview(ServerRequest request) {
         var reviewId = request.pathVariable("id");
-        var existingReview = reviewReactiveRepository.findById(reviewId);
-        return existingReview.flatMap(review -> reviewReactiveRepository
-                .deleteById(reviewId)
-                .then(ServerResponse
+        return deleteReviewById(reviewId)
+                .flatMap(review -> ServerResponse
                         .noContent()
                         .build()
-                ));
+                );
     }
 
+    /**
+     * A client that reads too slowly is handled with {@code overflow} ({@code drop-oldest}, {@code latest} or
+     * {@code disconnect}), by default with {@code reviews.stream.overflow.strategy}.
+     */
     public Mono<ServerResponse> getRevieswStream(ServerRequest serverRequest) {
+        var overflow = serverRequest.queryParam("overflow").map(ReviewHandler::overflowStrategy).orElse(null);
         return ServerResponse
                 .ok()
                 .contentType(MediaType.APPLICATION_NDJSON)
-                .body(reviewSink.asFlux(), Review.class)
+                .body(reviewStream(overflow), Review.class)
                 .log();
     }
+
+    Flux<Review> reviewStream(OverflowStrategy overflow) {
+        return reviewStreamSubscribers.subscribe(reviewSink.asFlux(), overflow);
+    }
+
+    private static OverflowStrategy overflowStrategy(String overflow) {
+        try {
+            return OverflowStrategy.parse(overflow);
+        } catch (IllegalArgumentException ex) {
+            throw new ReviewDataException(ex.getMessage());
+        }
+    }
 }
@@ -0,0 +1,91 @@
+package com.reactivespring.handler;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.exception.ReviewDataException;
+import com.reactivespring.exception.ReviewNotFoundException;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import io.rsocket.exceptions.InvalidException;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.handler.invocation.MethodArgumentResolutionException;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+/**
+ * RSocket routes mirroring the {@code /v1/reviews} routes of {@link ReviewHandler}, so callers get request-stream
+ * backpressure and multiplexing on one connection. New reviews are published to the same review stream. Requests
+ * that would be a 400 or 404 over HTTP fail with RSocket's INVALID error code, so that callers can tell them from
+ * server failures.
+ */
+@Controller
+public class ReviewRSocketController {
+
+    private final ReviewReactiveRepository reviewReactiveRepository;
+    private final ReviewHandler reviewHandler;
+
+    public ReviewRSocketController(ReviewReactiveRepository reviewReactiveRepository, ReviewHandler reviewHandler) {
+        this.reviewReactiveRepository = reviewReactiveRepository;
+        this.reviewHandler = reviewHandler;
+    }
+
+    @MessageMapping("reviews")
+    public Flux<Review> getReviews() {
+        return reviewReactiveRepository.findAll();
+    }
+
+    @MessageMapping("reviews.movie.{movieInfoId}")
+    public Flux<Review> getReviewsByMovieInfoId(@DestinationVariable Long movieInfoId) {
+        return reviewReactiveRepository.findReviewsByMovieInfoId(movieInfoId);
+    }
+
+    @MessageMapping("reviews.movies")
+    public Flux<Review> getReviewsByMovieInfoIds(@Payload Set<Long> movieInfoIds) {
+        return reviewReactiveRepository.findReviewsByMovieInfoIdIn(movieInfoIds);
+    }
+
+    @MessageMapping("reviews.summary.{movieInfoId}")
+    public Mono<ReviewSummary> getReviewSummary(@DestinationVariable Long movieInfoId) {
+        return reviewHandler.summarize(Set.of(movieInfoId)).next();
+    }
+
+    @MessageMapping("reviews.summaries")
+    public Flux<ReviewSummary> getReviewSummaries(@Payload Set<Long> movieInfoIds) {
+        return reviewHandler.summarize(movieInfoIds);
+    }
+
+    @MessageMapping("reviews.stream")
+    public Flux<Review> getReviewsStream() {
+        return reviewHandler.reviewStream(null);
+    }
+
+    @MessageMapping("reviews.add")
+    public Mono<Review> addReview(@Payload Review review) {
+        return Mono.just(review)
+                .doOnNext(reviewHandler::validate)
+                .flatMap(reviewHandler::saveReview)
+                .doOnNext(reviewHandler.reviewSink::tryEmitNext);
+    }
+
+    @MessageMapping("reviews.update.{id}")
+    public Mono<Review> updateReview(@Payload Review updatedReview, @DestinationVariable String id) {
+        return reviewHandler.updateReviewById(id, updatedReview);
+    }
+
+    @MessageMapping("reviews.delete.{id}")
+    public Mono<Void> deleteReview(@DestinationVariable String id) {
+        return reviewHandler.deleteReviewById(id).then();
+    }
+
+    @MessageExceptionHandler({ReviewDataException.class, ReviewNotFoundException.class,
+            MethodArgumentResolutionException.class, ConversionException.class})
+    public void invalidRequest(Exception ex) {
+        throw new InvalidException(ex.getMessage());
+    }
+}
@@ -0,0 +1,46 @@
+package com.reactivespring.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.ReactiveMongoPersistentEntityIndexCreator;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Creates the indexes declared on the documents with {@code @Indexed} and {@code @CompoundIndex} once the application
+ * is ready. Startup does not wait for the index builds; queries run without an index until its build finished.
+ * Creating an index that already exists is a no-op, so this is safe on every start of every instance.
+ */
+@Component
+@Slf4j
+public class MongoIndexCreator {
+
+    private final MongoMappingContext mappingContext;
+    private final ReactiveMongoPersistentEntityIndexCreator indexCreator;
+
+    public MongoIndexCreator(MongoMappingContext mappingContext, ReactiveMongoTemplate mongoTemplate) {
+        this.mappingContext = mappingContext;
+        this.indexCreator = new ReactiveMongoPersistentEntityIndexCreator(mappingContext, mongoTemplate::indexOps);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexesInBackground() {
+        createIndexes().subscribe(
+                unused -> {
+                },
+                ex -> log.warn("Creating indexes failed", ex),
+                () -> log.info("Indexes created"));
+    }
+
+    public Mono<Void> createIndexes() {
+        return Flux.fromIterable(mappingContext.getPersistentEntities())
+                .filter(entity -> entity.isAnnotationPresent(Document.class))
+                .concatMap(indexCreator::checkForIndexes)
+                .then();
+    }
+}
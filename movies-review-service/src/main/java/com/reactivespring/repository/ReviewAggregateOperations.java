@@ -0,0 +1,20 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewAggregate;
+import reactor.core.publisher.Mono;
+
+public interface ReviewAggregateOperations {
+
+    /**
+     * Moves the aggregates from a state with {@code removed} to one with {@code added} with atomic {@code $inc}
+     * updates; either review may be null. Concurrent deltas never overwrite each other.
+     */
+    Mono<Void> applyDelta(Review removed, Review added);
+
+    /**
+     * Overwrites the aggregate of a movie with recomputed totals, unless a delta was applied since {@code stored}
+     * was read. Emits whether the aggregate was written.
+     */
+    Mono<Boolean> replaceIfUnchanged(ReviewAggregate recomputed, ReviewAggregate stored);
+}
@@ -0,0 +1,60 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewAggregate;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+class ReviewAggregateOperationsImpl implements ReviewAggregateOperations {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    ReviewAggregateOperationsImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<Void> applyDelta(Review removed, Review added) {
+        if (removed != null && added != null && !Objects.equals(removed.getMovieInfoId(), added.getMovieInfoId())) {
+            return applyDelta(removed, null).then(applyDelta(null, added));
+        }
+        var deltas = ReviewAggregate.deltas(removed, added);
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+        var update = new Update().inc("version", 1);
+        deltas.forEach(update::inc);
+        var movieInfoId = (added != null ? added : removed).getMovieInfoId();
+        var query = query(where("_id").is(movieInfoId));
+        // only an added review creates the aggregate, a missing one is left to reconciliation
+        var result = added != null
+                ? mongoTemplate.upsert(query, update, ReviewAggregate.class)
+                : mongoTemplate.updateFirst(query, update, ReviewAggregate.class);
+        return result.then();
+    }
+
+    @Override
+    public Mono<Boolean> replaceIfUnchanged(ReviewAggregate recomputed, ReviewAggregate stored) {
+        if (stored == null) {
+            return mongoTemplate.insert(recomputed)
+                    .thenReturn(true)
+                    .onErrorResume(DuplicateKeyException.class, ex -> Mono.just(false));
+        }
+        var update = Update.update("count", recomputed.getCount())
+                .set("ratedCount", recomputed.getRatedCount())
+                .set("ratingSum", recomputed.getRatingSum())
+                .set("histogram", recomputed.getHistogram())
+                .inc("version", 1);
+        return mongoTemplate.updateFirst(
+                        query(where("_id").is(stored.getMovieInfoId()).and("version").is(stored.getVersion())),
+                        update, ReviewAggregate.class)
+                .map(result -> result.getModifiedCount() == 1);
+    }
+}
@@ -0,0 +1,105 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.ReviewAggregate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Recomputes the rating aggregates from the reviews and repairs the ones that drifted, e.g. after a crash between a
+ * review write and its delta, or for reviews written before aggregates existed. Runs at startup and then every
+ * {@code reviews.aggregates.reconcile.interval}. A movie whose aggregate changes while it is being checked is
+ * skipped until the next run rather than overwritten. The aggregates are eventually consistent, not exact: a review
+ * that is already stored while its delta is still on the way can be counted by the recomputation and then again by
+ * the delta, and stays counted twice until the next run repairs it.
+ */
+@Component
+@Slf4j
+public class ReviewAggregateReconciler {
+
+    private final ReviewReactiveRepository reviewReactiveRepository;
+    private final ReviewAggregateRepository reviewAggregateRepository;
+    private final boolean onStartup;
+    private final Duration interval;
+    private final int concurrency;
+    private Disposable subscription;
+
+    public ReviewAggregateReconciler(ReviewReactiveRepository reviewReactiveRepository,
+                                     ReviewAggregateRepository reviewAggregateRepository,
+                                     @Value("${reviews.aggregates.reconcile.onStartup:true}") boolean onStartup,
+                                     @Value("${reviews.aggregates.reconcile.interval:1h}") Duration interval,
+                                     @Value("${reviews.aggregates.reconcile.concurrency:4}") int concurrency) {
+        this.reviewReactiveRepository = reviewReactiveRepository;
+        this.reviewAggregateRepository = reviewAggregateRepository;
+        this.onStartup = onStartup;
+        this.interval = interval;
+        this.concurrency = concurrency;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (interval.isZero() && !onStartup) {
+            return;
+        }
+        var ticks = interval.isZero()
+                ? Flux.just(0L)
+                : Flux.interval(onStartup ? Duration.ZERO : interval, interval).onBackpressureDrop();
+        subscription = ticks
+                .concatMap(tick -> reconcile()
+                        .onErrorResume(ex -> {
+                            log.warn("Review aggregate reconciliation failed: {}", ex.toString());
+                            return Mono.empty();
+                        }), 0)
+                .subscribe();
+    }
+
+    /**
+     * Checks every movie that has reviews or an aggregate, emitting how many aggregates were repaired.
+     */
+    public Mono<Long> reconcile() {
+        return Flux.merge(reviewReactiveRepository.findDistinctMovieInfoIds(),
+                        reviewAggregateRepository.findAll().map(ReviewAggregate::getMovieInfoId))
+                .distinct()
+                .flatMap(this::reconcile, concurrency)
+                .filter(Boolean::booleanValue)
+                .count()
+                .doOnNext(repaired -> log.info("Reconciled review aggregates, {} repaired", repaired));
+    }
+
+    /**
+     * The stored aggregate is read before the reviews are, so a delta applied in between changes its version and the
+     * conditional replace is skipped. A delta applied after the replace is not detected, see the class comment.
+     */
+    Mono<Boolean> reconcile(Long movieInfoId) {
+        return reviewAggregateRepository.findById(movieInfoId)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(stored -> reviewReactiveRepository.findRatingBucketsByMovieInfoIdIn(Set.of(movieInfoId))
+                        .collectList()
+                        .map(buckets -> ReviewAggregate.of(movieInfoId, buckets))
+                        .filter(recomputed -> !recomputed.hasSameTotals(
+                                stored.orElseGet(() -> ReviewAggregate.empty(movieInfoId))))
+                        .flatMap(recomputed -> {
+                            log.info("Repairing review aggregate of movie {}: {}", movieInfoId, recomputed);
+                            return reviewAggregateRepository.replaceIfUnchanged(recomputed, stored.orElse(null));
+                        }))
+                .defaultIfEmpty(false);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
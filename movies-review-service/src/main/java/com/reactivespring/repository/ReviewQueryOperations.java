@@ -0,0 +1,18 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewCursor;
+import com.reactivespring.domain.ReviewSort;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+public interface ReviewQueryOperations {
+
+    /**
+     * Up to {@code limit} reviews of the given movies, or of all movies when {@code movieInfoIds} is null, in
+     * {@code sort} order and starting right after {@code after} when it is not null. The cursor is turned into a
+     * range condition on the sort key, so a page costs the same however deep it is.
+     */
+    Flux<Review> findPage(Collection<Long> movieInfoIds, ReviewSort sort, ReviewCursor after, int limit);
+}
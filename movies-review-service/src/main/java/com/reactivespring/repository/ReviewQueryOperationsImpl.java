@@ -0,0 +1,75 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewCursor;
+import com.reactivespring.domain.ReviewSort;
+import org.bson.BsonType;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+class ReviewQueryOperationsImpl implements ReviewQueryOperations {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    ReviewQueryOperationsImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Flux<Review> findPage(Collection<Long> movieInfoIds, ReviewSort sort, ReviewCursor after, int limit) {
+        var criteria = new ArrayList<Criteria>();
+        if (movieInfoIds != null) {
+            criteria.add(where("movieInfoId").in(movieInfoIds));
+        }
+        if (after != null) {
+            criteria.add(after(after));
+        }
+        var query = criteria.isEmpty()
+                ? new Query()
+                : Query.query(new Criteria().andOperator(criteria.toArray(new Criteria[0])));
+        return mongoTemplate.find(query.with(sort.toSort()).limit(limit), Review.class);
+    }
+
+    private static Criteria after(ReviewCursor cursor) {
+        switch (cursor.getSort()) {
+            case NEWEST:
+                return idAfter(cursor.getReviewId(), false);
+            case RATING:
+                // ratings descending with unrated reviews last, then ids ascending
+                if (cursor.getRating() == null) {
+                    return new Criteria().andOperator(where("rating").is(null), idAfter(cursor.getReviewId(), true));
+                }
+                return new Criteria().orOperator(
+                        where("rating").lt(cursor.getRating()),
+                        new Criteria().andOperator(where("rating").is(cursor.getRating()),
+                                idAfter(cursor.getReviewId(), true)),
+                        where("rating").is(null));
+            default:
+                return idAfter(cursor.getReviewId(), true);
+        }
+    }
+
+    /**
+     * Generated ids are stored as ObjectIds and ids chosen by clients as strings. Mongo only compares values of the
+     * same type and sorts all strings before all ObjectIds, so crossing from one to the other is spelled out.
+     */
+    private static Criteria idAfter(String reviewId, boolean ascending) {
+        var objectId = ObjectId.isValid(reviewId);
+        var sameType = ascending ? where("_id").gt(reviewId) : where("_id").lt(reviewId);
+        if (ascending && !objectId) {
+            return new Criteria().orOperator(sameType, where("_id").type(BsonType.OBJECT_ID.getValue()));
+        }
+        if (!ascending && objectId) {
+            return new Criteria().orOperator(sameType, where("_id").type(BsonType.STRING.getValue()));
+        }
+        return sameType;
+    }
+}
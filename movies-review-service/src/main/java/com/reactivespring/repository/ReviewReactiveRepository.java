@@ -1,9 +1,37 @@
 package com.reactivespring.repository;
 
+import com.reactivespring.domain.RatingBucket;
 import com.reactivespring.domain.Review;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
-public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String> {
+import java.util.Collection;
+
+public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String>, ReviewWriteOperations,
+        ReviewQueryOperations {
     Flux<Review> findReviewsByMovieInfoId(Long movieInfoId);
+
+    Flux<Review> findReviewsByMovieInfoIdIn(Collection<Long> movieInfoIds);
+
+    /**
+     * Counts and rating sums per movie and whole rating, computed in Mongo so that only a dozen rows per movie
+     * leave the database instead of every review.
+     */
+    @Aggregation({
+            "{ $match: { movieInfoId: { $in: ?0 } } }",
+            "{ $group: { _id: { movieInfoId: '$movieInfoId', rating: { $floor: '$rating' } },"
+                    + " count: { $sum: 1 }, ratingSum: { $sum: '$rating' } } }",
+            "{ $project: { _id: 0, movieInfoId: '$_id.movieInfoId', rating: '$_id.rating',"
+                    + " count: 1, ratingSum: 1 } }"
+    })
+    Flux<RatingBucket> findRatingBucketsByMovieInfoIdIn(Collection<Long> movieInfoIds);
+
+    // sorted first so that the group reads the movieInfoId index instead of every review
+    @Aggregation({
+            "{ $sort: { movieInfoId: 1 } }",
+            "{ $group: { _id: '$movieInfoId' } }",
+            "{ $project: { _id: 0, movieInfoId: '$_id' } }"
+    })
+    Flux<Long> findDistinctMovieInfoIds();
 }
@@ -0,0 +1,26 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import reactor.core.publisher.Mono;
+
+/**
+ * Review writes that return the previous version of the review from the same atomic operation, so that the rating
+ * aggregates can be adjusted by exactly what changed even when the same review is written concurrently.
+ */
+public interface ReviewWriteOperations {
+
+    /**
+     * Replaces or inserts the review with the id of {@code review}, emitting the replaced review if there was one.
+     */
+    Mono<Review> findAndReplace(Review review);
+
+    /**
+     * Sets the comment and the rating of a review, emitting the review as it was before.
+     */
+    Mono<Review> findAndUpdate(String reviewId, String comment, Double rating);
+
+    /**
+     * Deletes a review, emitting it if it existed.
+     */
+    Mono<Review> findAndRemove(String reviewId);
+}
@@ -0,0 +1,36 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+class ReviewWriteOperationsImpl implements ReviewWriteOperations {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    ReviewWriteOperationsImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<Review> findAndReplace(Review review) {
+        return mongoTemplate.findAndReplace(query(where("_id").is(review.getReviewId())), review,
+                FindAndReplaceOptions.options().upsert());
+    }
+
+    @Override
+    public Mono<Review> findAndUpdate(String reviewId, String comment, Double rating) {
+        return mongoTemplate.findAndModify(query(where("_id").is(reviewId)),
+                Update.update("comment", comment).set("rating", rating), Review.class);
+    }
+
+    @Override
+    public Mono<Review> findAndRemove(String reviewId) {
+        return mongoTemplate.findAndRemove(query(where("_id").is(reviewId)), Review.class);
+    }
+}
@@ -21,6 +21,7 @@ public class ReviewRouter {
                         .PUT("/{id}", reviewHandler::updateReview)
                         .DELETE("/{id}", reviewHandler::deleteReview)
                         .GET("/stream", reviewHandler::getRevieswStream)
+                        .GET("/summary", reviewHandler::getReviewSummary)
                 )
                 .GET("/v1/helloworld", request -> ServerResponse
                         .ok()
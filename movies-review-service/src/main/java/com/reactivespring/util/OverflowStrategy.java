@@ -0,0 +1,38 @@
+package com.reactivespring.util;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * What a stream does for a subscriber that reads slower than events arrive, once its own buffer is full.
+ */
+public enum OverflowStrategy {
+    /**
+     * Drop the oldest buffered event to make room; the subscriber sees a gap but stays connected.
+     */
+    DROP_OLDEST,
+    /**
+     * Keep only the newest event; suited to clients that only render the current state.
+     */
+    LATEST,
+    /**
+     * Disconnect the subscriber, which can reconnect and resume once it caught up.
+     */
+    DISCONNECT;
+
+    public String value() {
+        return name().toLowerCase().replace('_', '-');
+    }
+
+    /**
+     * Parses {@code drop-oldest}, {@code latest} or {@code disconnect}.
+     */
+    public static OverflowStrategy parse(String value) {
+        return Arrays.stream(values())
+                .filter(strategy -> strategy.value().equalsIgnoreCase(value.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("overflow must be one of " + Arrays.stream(values())
+                        .map(OverflowStrategy::value)
+                        .collect(Collectors.joining(", "))));
+    }
+}
@@ -0,0 +1,152 @@
+package com.reactivespring.repository;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewCursor;
+import com.reactivespring.domain.ReviewSort;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs every ReviewReactiveRepository query, records the commands they send and explains each of them, failing when
+ * a winning plan reads the whole collection instead of an index.
+ */
+@DataMongoTest
+@ActiveProfiles("test")
+@Import({MongoIndexCreator.class, ReviewIndexIntgTest.QueryRecorder.class})
+class ReviewIndexIntgTest {
+
+    @Autowired
+    ReviewReactiveRepository reviewReactiveRepository;
+
+    @Autowired
+    ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    MongoIndexCreator mongoIndexCreator;
+
+    @Autowired
+    QueryRecorder queryRecorder;
+
+    @BeforeAll
+    static void beforeAll() {
+        System.setProperty("os.arch", "x86_64");
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongoIndexCreator.createIndexes().block();
+        var reviews = new ArrayList<Review>();
+        for (int i = 0; i < 50; i++) {
+            reviews.add(new Review(null, (long) (i % 10), "Review " + i, (double) (i % 7)));
+        }
+        reviewReactiveRepository.saveAll(reviews).blockLast();
+        queryRecorder.commands.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewReactiveRepository.deleteAll().block();
+    }
+
+    @Test
+    void repositoryQueriesUseIndexes() {
+        // given
+        var movieInfoIds = List.of(1L, 2L);
+
+        // when
+        reviewReactiveRepository.findReviewsByMovieInfoId(1L).blockLast();
+        reviewReactiveRepository.findReviewsByMovieInfoIdIn(movieInfoIds).blockLast();
+        reviewReactiveRepository.findRatingBucketsByMovieInfoIdIn(movieInfoIds).blockLast();
+        reviewReactiveRepository.findDistinctMovieInfoIds().blockLast();
+        for (var sort : ReviewSort.values()) {
+            for (var ids : Arrays.asList(null, movieInfoIds)) {
+                var first = reviewReactiveRepository.findPage(ids, sort, null, 10).blockFirst();
+                reviewReactiveRepository.findPage(ids, sort, ReviewCursor.after(sort, first), 10).blockLast();
+            }
+        }
+
+        // then
+        assertEquals(4 + ReviewSort.values().length * 4, queryRecorder.commands.size());
+        queryRecorder.commands.forEach(command -> {
+            var plans = winningPlans(mongoTemplate.executeCommand(explain(command)).block());
+            assertFalse(plans.isEmpty(), command::toJson);
+            plans.forEach(plan -> assertFalse(plan.contains("COLLSCAN"), () -> command.toJson() + " -> " + plan));
+        });
+    }
+
+    /**
+     * The recorded command without the fields the driver adds to every command. Aggregations are explained with
+     * their explain flag, which every Mongo version we run against accepts.
+     */
+    private static Document explain(BsonDocument command) {
+        var query = Document.parse(command.toJson());
+        query.keySet().removeIf(key -> key.startsWith("$") || key.equals("lsid") || key.equals("txnNumber"));
+        if (query.containsKey("aggregate")) {
+            query.remove("cursor");
+            return query.append("explain", true);
+        }
+        return new Document("explain", query).append("verbosity", "queryPlanner");
+    }
+
+    private static List<String> winningPlans(Object explained) {
+        var plans = new ArrayList<String>();
+        if (explained instanceof Document) {
+            var document = (Document) explained;
+            document.forEach((key, value) -> {
+                if (key.equals("winningPlan")) {
+                    plans.add(((Document) value).toJson());
+                } else {
+                    plans.addAll(winningPlans(value));
+                }
+            });
+        } else if (explained instanceof List) {
+            ((List<?>) explained).forEach(value -> plans.addAll(winningPlans(value)));
+        }
+        return plans;
+    }
+
+    @TestConfiguration
+    static class QueryRecorder {
+
+        private static final Set<String> QUERIES = Set.of("find", "aggregate");
+
+        final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer queryRecordingCustomizer() {
+            return settings -> settings.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    if (QUERIES.contains(event.getCommandName())
+                            && "review".equals(event.getCommand().getString(event.getCommandName()).getValue())) {
+                        // the event's document is only valid during the callback
+                        commands.add(BsonDocument.parse(event.getCommand().toJson()));
+                    }
+                }
+            });
+        }
+    }
+}
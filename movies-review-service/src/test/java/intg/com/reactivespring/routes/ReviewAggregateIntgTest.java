@@ -0,0 +1,169 @@
+package com.reactivespring.routes;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewAggregate;
+import com.reactivespring.repository.ReviewAggregateReconciler;
+import com.reactivespring.repository.ReviewAggregateRepository;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+class ReviewAggregateIntgTest {
+    private static final String REVIEWS_URL = "/v1/reviews";
+    private static final int REVIEWS = 200;
+    private static final int CONCURRENCY = 16;
+
+    @Autowired
+    ReviewReactiveRepository reviewReactiveRepository;
+
+    @Autowired
+    ReviewAggregateRepository reviewAggregateRepository;
+
+    @Autowired
+    ReviewAggregateReconciler reviewAggregateReconciler;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @BeforeAll
+    static void beforeAll() {
+        System.setProperty("os.arch", "x86_64");
+    }
+
+    @BeforeEach
+    void setUp() {
+        reviewReactiveRepository.deleteAll().block();
+        reviewAggregateRepository.deleteAll().block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewReactiveRepository.deleteAll().block();
+        reviewAggregateRepository.deleteAll().block();
+    }
+
+    @Test
+    void aggregatesStayConsistentUnderParallelWrites() {
+        // given
+        var saved = inParallel(Flux.range(0, REVIEWS), i -> post(
+                new Review(null, (long) (i % 4), "Review " + i, i % 7 == 0 ? null : (double) (i % 10))));
+
+        // when
+        // every review is updated twice and every fourth one is deleted twice, all at the same time
+        var writes = Flux.fromIterable(saved).index().flatMapIterable(indexed -> {
+            var reviewId = indexed.getT2().getReviewId();
+            var movieInfoId = indexed.getT2().getMovieInfoId();
+            var reviewWrites = new ArrayList<Runnable>(List.of(
+                    () -> put(reviewId, new Review(null, movieInfoId, "Updated", 5.5)),
+                    () -> put(reviewId, new Review(null, movieInfoId, "Updated again", null))));
+            if (indexed.getT1() % 4 == 0) {
+                reviewWrites.add(() -> delete(reviewId));
+                reviewWrites.add(() -> delete(reviewId));
+            }
+            return reviewWrites;
+        });
+        inParallel(writes, write -> {
+            write.run();
+            return true;
+        });
+
+        // then
+        for (var movieInfoId : List.of(0L, 1L, 2L, 3L)) {
+            var recomputed = reviewReactiveRepository.findRatingBucketsByMovieInfoIdIn(Set.of(movieInfoId))
+                    .collectList()
+                    .map(buckets -> ReviewAggregate.of(movieInfoId, buckets))
+                    .block();
+            var maintained = reviewAggregateRepository.findById(movieInfoId).block();
+            assertTrue(recomputed.hasSameTotals(maintained), recomputed + " != " + maintained);
+        }
+        assertEquals(0L, reviewAggregateReconciler.reconcile().block());
+    }
+
+    @Test
+    void reconcile_repairsDriftedAggregates() {
+        // given
+        reviewReactiveRepository.saveAll(List.of(
+                new Review(null, 1L, "Movie 1", 9.0),
+                new Review(null, 1L, "Movie 1 again", 8.0))).blockLast();
+        reviewAggregateRepository.save(new ReviewAggregate(2L, 5, 5, 40.0, null, 3)).block();
+
+        // when
+        var repaired = reviewAggregateReconciler.reconcile().block();
+
+        // then
+        assertEquals(2L, repaired);
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL + "/summary")
+                        .queryParam("movieInfoIds", "1,2")
+                        .build())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$[0].count").isEqualTo(2)
+                .jsonPath("$[0].averageRating").isEqualTo(8.5)
+                .jsonPath("$[1].count").isEqualTo(0);
+    }
+
+    private static <T, R> List<R> inParallel(Flux<T> inputs, Function<T, R> call) {
+        return inputs
+                .flatMap(input -> Mono.fromCallable(() -> call.apply(input))
+                        .subscribeOn(Schedulers.boundedElastic()), CONCURRENCY)
+                .collectList()
+                .block();
+    }
+
+    private Review post(Review review) {
+        return webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .returnResult(Review.class)
+                .getResponseBody()
+                .blockFirst();
+    }
+
+    private void put(String reviewId, Review update) {
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", reviewId)
+                .bodyValue(update)
+                .exchange()
+                .expectBody()
+                .returnResult();
+    }
+
+    private void delete(String reviewId) {
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", reviewId)
+                .exchange()
+                .expectBody()
+                .returnResult();
+    }
+}
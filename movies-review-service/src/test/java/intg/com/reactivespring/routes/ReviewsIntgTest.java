@@ -1,19 +1,29 @@
 package com.reactivespring.routes;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.handler.ReviewHandler;
+import com.reactivespring.repository.ReviewAggregateReconciler;
+import com.reactivespring.repository.ReviewAggregateRepository;
 import com.reactivespring.repository.ReviewReactiveRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -26,6 +36,12 @@ class ReviewsIntgTest {
     @Autowired
     ReviewReactiveRepository reviewReactiveRepository;
 
+    @Autowired
+    ReviewAggregateRepository reviewAggregateRepository;
+
+    @Autowired
+    ReviewAggregateReconciler reviewAggregateReconciler;
+
     @Autowired
     WebTestClient webTestClient;
 
@@ -49,6 +65,7 @@ class ReviewsIntgTest {
     @AfterEach
     void tearDown() {
         reviewReactiveRepository.deleteAll().block();
+        reviewAggregateRepository.deleteAll().block();
     }
 
     @Test
@@ -143,4 +160,80 @@ class ReviewsIntgTest {
                 .hasSize(2);
     }
 
+    @Test
+    void getReviewsByMovieInfoIds() {
+        // given
+
+        // when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL)
+                        .queryParam("movieInfoIds", "1,2")
+                        .build())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                // then
+                .hasSize(3);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"id", "newest", "rating"})
+    void getReviews_pagesThroughAllReviews(String sort) {
+        // given
+        var reviews = new ArrayList<Review>();
+        String cursor = null;
+
+        // when
+        do {
+            var after = cursor;
+            var result = webTestClient
+                    .get()
+                    .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL)
+                            .queryParam("limit", "1")
+                            .queryParam("sort", sort)
+                            .queryParamIfPresent("after", Optional.ofNullable(after))
+                            .build())
+                    .exchange()
+                    .expectStatus()
+                    .is2xxSuccessful()
+                    .expectBodyList(Review.class)
+                    .hasSize(1)
+                    .returnResult();
+            reviews.addAll(result.getResponseBody());
+            cursor = result.getResponseHeaders().getFirst(ReviewHandler.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        // then
+        assertEquals(4, reviews.stream().map(Review::getReviewId).distinct().count());
+        if (sort.equals("rating")) {
+            assertEquals(List.of(9.0, 9.0, 8.0, 8.0),
+                    reviews.stream().map(Review::getRating).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void getReviewSummary() {
+        // given
+        reviewReactiveRepository.saveAll(List.of(
+                new Review(null, 1L, "Movie 1 unrated", null),
+                new Review(null, 1L, "Movie 1 once more", 8.5))).blockLast();
+        // reviews saved straight to the repository have no aggregates until reconciled
+        reviewAggregateReconciler.reconcile().block();
+
+        // when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL + "/summary")
+                        .queryParam("movieInfoId", "1")
+                        .build())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(ReviewSummary.class)
+                // then
+                .isEqualTo(new ReviewSummary(1L, 4, 25.5 / 3, Map.of(8, 2L, 9, 1L)));
+    }
+
 }
@@ -0,0 +1,64 @@
+package com.reactivespring.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReviewAggregateTest {
+
+    @Test
+    void deltas_addAndRemove() {
+        // given
+        var review = new Review("abc", 1L, "Awesome Movie", 9.5);
+
+        // when
+        var added = ReviewAggregate.deltas(null, review);
+        var removed = ReviewAggregate.deltas(review, null);
+
+        // then
+        assertEquals(Map.of("count", 1L, "ratedCount", 1L, "ratingSum", 9.5, "histogram.9", 1L), added);
+        assertEquals(Map.of("count", -1L, "ratedCount", -1L, "ratingSum", -9.5, "histogram.9", -1L), removed);
+    }
+
+    @Test
+    void deltas_ratingChangeMovesHistogramBucket() {
+        // given
+        var before = new Review("abc", 1L, "Awesome Movie", 9.0);
+        var after = new Review("abc", 1L, "Not an Awesome Movie", 7.0);
+
+        // when
+        var deltas = ReviewAggregate.deltas(before, after);
+
+        // then
+        assertEquals(Map.of("ratingSum", -2.0, "histogram.9", -1L, "histogram.7", 1L), deltas);
+        assertTrue(ReviewAggregate.deltas(before, new Review("abc", 1L, "Still awesome", 9.0)).isEmpty());
+    }
+
+    @Test
+    void deltas_unratedReviewOnlyCounts() {
+        // when
+        var deltas = ReviewAggregate.deltas(null, new Review("abc", 1L, "No rating", null));
+
+        // then
+        assertEquals(Map.of("count", 1L), deltas);
+    }
+
+    @Test
+    void of_matchesAppliedDeltas() {
+        // given
+        var recomputed = ReviewAggregate.of(1L, List.of(
+                new RatingBucket(1L, 9, 2, 19.0),
+                new RatingBucket(1L, null, 1, 0.0)));
+        var maintained = new ReviewAggregate(1L, 3, 2, 19.000000000001, Map.of("9", 2L, "7", 0L), 12);
+
+        // then
+        assertTrue(recomputed.hasSameTotals(maintained));
+        assertFalse(recomputed.hasSameTotals(ReviewAggregate.empty(1L)));
+        assertEquals(new ReviewSummary(1L, 3, 9.5, Map.of(9, 2L)), recomputed.toSummary());
+    }
+}
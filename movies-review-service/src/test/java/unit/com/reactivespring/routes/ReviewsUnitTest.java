@@ -1,10 +1,16 @@
 package com.reactivespring.routes;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewAggregate;
+import com.reactivespring.domain.ReviewCursor;
+import com.reactivespring.domain.ReviewSort;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exceptionhandler.GlobalErrorHandler;
 import com.reactivespring.handler.ReviewHandler;
+import com.reactivespring.repository.ReviewAggregateRepository;
 import com.reactivespring.repository.ReviewReactiveRepository;
 import com.reactivespring.router.ReviewRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
@@ -17,22 +23,30 @@ import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
-import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class})
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class,
+        SimpleMeterRegistry.class})
 @AutoConfigureWebTestClient
 public class ReviewsUnitTest {
     @MockBean
     private ReviewReactiveRepository reviewRepository;
 
+    @MockBean
+    private ReviewAggregateRepository reviewAggregateRepository;
+
     @Autowired
     WebTestClient webTestClient;
 
@@ -57,10 +71,10 @@ public class ReviewsUnitTest {
     void addReview() {
         // given
         var review = new Review("abc", 2L, "Movie 1", 9.0);
-        when(reviewReactiveRepository.save(isA(Review.class)))
-                .thenReturn(
-                        Mono.just(review)
-                );
+        when(reviewReactiveRepository.findAndReplace(isA(Review.class)))
+                .thenReturn(Mono.empty());
+        when(reviewAggregateRepository.applyDelta(isNull(), isA(Review.class)))
+                .thenReturn(Mono.empty());
         // when
         webTestClient.post().uri(REVIEWS_URL).bodyValue(review).exchange().expectStatus().isCreated().expectBody(Review.class).consumeWith(movieInfoEntityExchangeResult -> {
             var savedReview = movieInfoEntityExchangeResult.getResponseBody();
@@ -71,6 +85,7 @@ public class ReviewsUnitTest {
             assertEquals("Movie 1", savedReview.getComment());
             assertEquals(9d, savedReview.getRating());
         });
+        verify(reviewAggregateRepository).applyDelta(null, review);
     }
 
     @Test
@@ -81,10 +96,12 @@ public class ReviewsUnitTest {
                 .thenReturn(
                         Mono.just(review)
                 );
-        when(reviewReactiveRepository.findById(anyString()))
+        when(reviewReactiveRepository.findAndUpdate("abc", "Not an Awesome Movie", 1.0))
                 .thenReturn(
                         Mono.just(review)
                 );
+        when(reviewAggregateRepository.applyDelta(isA(Review.class), isA(Review.class)))
+                .thenReturn(Mono.empty());
         var savedReview = reviewReactiveRepository.save(review).block();
         var reviewUpdate = new Review(null, 1L, "Not an Awesome Movie", 1.0);
         // when
@@ -104,6 +121,7 @@ public class ReviewsUnitTest {
                     assertEquals(1.0, updatedReview.getRating());
                     assertEquals("Not an Awesome Movie", updatedReview.getComment());
                 });
+        verify(reviewAggregateRepository).applyDelta(review, new Review("abc", 2L, "Not an Awesome Movie", 1.0));
 
     }
 
@@ -116,11 +134,11 @@ public class ReviewsUnitTest {
                 .thenReturn(
                         Mono.just(review)
                 );
-        when(reviewReactiveRepository.findById(id))
+        when(reviewReactiveRepository.findAndRemove(id))
                 .thenReturn(
                         Mono.just(review)
                 );
-        when(reviewReactiveRepository.deleteById(id))
+        when(reviewAggregateRepository.applyDelta(review, null))
                 .thenReturn(Mono.empty());
         var savedReview = reviewReactiveRepository.save(review).block();
         // when
@@ -135,7 +153,7 @@ public class ReviewsUnitTest {
     @Test
     void getReviews() {
         // given
-        when(reviewReactiveRepository.findAll())
+        when(reviewReactiveRepository.findPage(null, ReviewSort.ID, null, 101))
                 .thenReturn(getReviewsFlux());
         // when
         webTestClient
@@ -144,6 +162,7 @@ public class ReviewsUnitTest {
                 .exchange()
                 .expectStatus()
                 .is2xxSuccessful()
+                .expectHeader().doesNotExist(ReviewHandler.NEXT_CURSOR_HEADER)
                 .expectBodyList(Review.class)
                 .hasSize(4);
     }
@@ -151,7 +170,7 @@ public class ReviewsUnitTest {
     @Test
     void getReviewsByMovieInfoId() {
         // given
-        when(reviewReactiveRepository.findReviewsByMovieInfoId(anyLong()))
+        when(reviewReactiveRepository.findPage(Set.of(1L), ReviewSort.ID, null, 101))
                 .thenReturn(getReviewsFlux().filter(review -> Objects.equals(1L, review.getMovieInfoId())));
         // when
         webTestClient
@@ -169,6 +188,122 @@ public class ReviewsUnitTest {
                 .hasSize(2);
     }
 
+    @Test
+    void getReviewsByMovieInfoIds() {
+        // given
+        when(reviewReactiveRepository.findPage(Set.of(1L, 3L), ReviewSort.ID, null, 101))
+                .thenReturn(getReviewsFlux().filter(review -> review.getMovieInfoId() != 2L));
+        // when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL)
+                        .queryParam("movieInfoIds", "1,3")
+                        .build())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                // then
+                .hasSize(3);
+    }
+
+    @Test
+    void getReviews_nextPage() {
+        // given
+        var after = new ReviewCursor(ReviewSort.RATING, 9.0, "xyz");
+        when(reviewReactiveRepository.findPage(null, ReviewSort.RATING, after, 3))
+                .thenReturn(Flux.just(
+                        new Review("a", 1L, "Movie 1", 9.0),
+                        new Review("b", 3L, "Movie 3", 8.0),
+                        new Review("c", 1L, "Movie 1 again", 8.0)));
+        // when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL)
+                        .queryParam("limit", "2")
+                        .queryParam("sort", "rating")
+                        .queryParam("after", after.encode())
+                        .build())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                // then
+                .expectHeader().valueEquals(ReviewHandler.NEXT_CURSOR_HEADER,
+                        new ReviewCursor(ReviewSort.RATING, 8.0, "b").encode())
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getReviews_limitIsCapped() {
+        // given
+        when(reviewReactiveRepository.findPage(null, ReviewSort.NEWEST, null, 1001))
+                .thenReturn(getReviewsFlux());
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?limit=100000&sort=newest")
+                .exchange()
+                // then
+                .expectStatus()
+                .is2xxSuccessful();
+    }
+
+    @Test
+    void getReviews_cursorOfAnotherSort() {
+        // when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL)
+                        .queryParam("sort", "newest")
+                        .queryParam("after", new ReviewCursor(ReviewSort.ID, null, "xyz").encode())
+                        .build())
+                .exchange()
+                // then
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviewSummary() {
+        // given
+        when(reviewAggregateRepository.findAllById(Set.of(1L)))
+                .thenReturn(Flux.just(new ReviewAggregate(1L, 4, 3, 26.0, Map.of("7", 1L, "9", 2L, "8", 0L), 7)));
+        // when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL + "/summary")
+                        .queryParam("movieInfoId", "1")
+                        .build())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(ReviewSummary.class)
+                // then
+                .isEqualTo(new ReviewSummary(1L, 4, 26.0 / 3, Map.of(7, 1L, 9, 2L)));
+    }
+
+    @Test
+    void getReviewSummaries_includesMoviesWithoutReviews() {
+        // given
+        when(reviewAggregateRepository.findAllById(Set.of(1L, 2L)))
+                .thenReturn(Flux.just(new ReviewAggregate(2L, 1, 1, 8.5, Map.of("8", 1L), 1)));
+        // when
+        webTestClient
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(REVIEWS_URL + "/summary")
+                        .queryParam("movieInfoIds", "1,2")
+                        .build())
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(ReviewSummary.class)
+                // then
+                .isEqualTo(List.of(
+                        new ReviewSummary(1L, 0, null, Map.of()),
+                        new ReviewSummary(2L, 1, 8.5, Map.of(8, 1L))));
+    }
+
     @Test
     void addReview_validation() {
         // given
@@ -189,4 +324,17 @@ public class ReviewsUnitTest {
                 .isEqualTo("rating.movieInfoId: must not be null, rating.negative: please pass a non-negative value");
     }
 
+    @Test
+    void getReviewsStream_unknownOverflowStrategy() {
+        // when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stream?overflow={overflow}", "unbounded")
+                .exchange()
+                // then
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("overflow must be one of drop-oldest, latest, disconnect");
+    }
 }
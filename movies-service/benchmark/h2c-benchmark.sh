@@ -0,0 +1,39 @@
+#!/usr/bin/env bash
+#
+# Load-tests GET /v1/movies/{id} on movies-service and records throughput together with the peak number of
+# connections movies-service holds open to movies-info-service (8080) and movies-review-service (8081).
+#
+# Run it once per transport and compare the two summaries:
+#   HTTP/1.1  start all three services with their defaults, then: ./h2c-benchmark.sh http1.1
+#   h2c       start the backends with --server.http2.enabled=true and movies-service with
+#             --restClient.http.protocols=H2C, then:            ./h2c-benchmark.sh h2c
+#
+# Requires h2load (nghttp2) and ss (iproute2). Tunables: URL, REQUESTS, CLIENTS.
+
+set -euo pipefail
+
+LABEL=${1:-run}
+URL=${URL:-http://localhost:8082/v1/movies/1}
+REQUESTS=${REQUESTS:-20000}
+CLIENTS=${CLIENTS:-200}
+OUT=$(mktemp)
+
+backend_connections() {
+  ss -Htn state established '( dport = :8080 or dport = :8081 )' | wc -l
+}
+
+h2load --h1 -n "$REQUESTS" -c "$CLIENTS" "$URL" > "$OUT" &
+LOAD_PID=$!
+
+peak=0
+while kill -0 "$LOAD_PID" 2>/dev/null; do
+  current=$(backend_connections)
+  (( current > peak )) && peak=$current
+  sleep 0.2
+done
+wait "$LOAD_PID"
+
+echo "== $LABEL"
+grep -E "^finished in|^requests:|^status codes:" "$OUT"
+echo "peak backend connections: $peak"
+rm -f "$OUT"
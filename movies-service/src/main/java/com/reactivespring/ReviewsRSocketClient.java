@@ -0,0 +1,93 @@
+package com.reactivespring;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.exception.ReviewsClientException;
+import com.reactivespring.exception.ReviewsServerException;
+import com.reactivespring.util.HedgingPolicy;
+import com.reactivespring.util.ResiliencePolicy;
+import com.reactivespring.util.RetryPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.rsocket.exceptions.InvalidException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * {@link ReviewsRestClient} talking to the RSocket routes of movies-review-service over one multiplexed TCP
+ * connection, selected with {@code restClient.transport=rsocket}. Every lookup is one request-stream interaction,
+ * collected before it is retried or hedged; a streamed lookup has only its opening guarded. A request the server
+ * rejects as INVALID, or ids that are not numbers, are client errors; every other failure is treated like a server
+ * error.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "restClient.transport", havingValue = "rsocket")
+public class ReviewsRSocketClient extends ReviewsRestClient {
+
+    private final RSocketRequester requester;
+
+    ReviewsRSocketClient(RSocketRequester.Builder requesterBuilder,
+                         @Value("${restClient.rsocket.reviews.host:localhost}") String host,
+                         @Value("${restClient.rsocket.reviews.port:7081}") int port,
+                         MeterRegistry meterRegistry, RetryPolicy retryPolicy,
+                         ResiliencePolicy resiliencePolicy, HedgingPolicy hedgingPolicy) {
+        super(null, meterRegistry, retryPolicy, resiliencePolicy, hedgingPolicy);
+        this.requester = requesterBuilder.tcp(host, port);
+    }
+
+    @Override
+    protected Flux<Review> requestReviews(String movieId, CallPolicy policy) {
+        return guard(requester
+                .route("reviews.movie.{movieInfoId}", movieId)
+                .retrieveFlux(Review.class)
+                .onErrorMap(ReviewsRSocketClient::failure), policy);
+    }
+
+    @Override
+    protected Flux<Review> requestReviews(List<String> movieIds, CallPolicy policy) {
+        return guard(Flux.defer(() -> requester
+                        .route("reviews.movies")
+                        .data(movieIds.stream().map(Long::valueOf).collect(Collectors.toList()))
+                        .retrieveFlux(Review.class))
+                .onErrorMap(ReviewsRSocketClient::failure), policy);
+    }
+
+    @Override
+    protected Mono<ReviewSummary> requestReviewSummary(String movieId) {
+        return requester
+                .route("reviews.summary.{movieInfoId}", movieId)
+                .retrieveMono(ReviewSummary.class)
+                .onErrorMap(ReviewsRSocketClient::failure);
+    }
+
+    @Override
+    protected Flux<ReviewSummary> requestReviewSummaries(List<String> movieIds) {
+        return Flux.defer(() -> requester
+                        .route("reviews.summaries")
+                        .data(movieIds.stream().map(Long::valueOf).collect(Collectors.toList()))
+                        .retrieveFlux(ReviewSummary.class))
+                .onErrorMap(ReviewsRSocketClient::failure);
+    }
+
+    private static Throwable failure(Throwable ex) {
+        log.info("RSocket request failed: {}", ex.toString());
+        if (ex instanceof InvalidException || ex instanceof NumberFormatException) {
+            return new ReviewsClientException(ex.getMessage());
+        }
+        return new ReviewsServerException("ServerException in ReviewsService: " + ex.getMessage());
+    }
+
+    @PreDestroy
+    void close() {
+        requester.rsocketClient().dispose();
+    }
+}
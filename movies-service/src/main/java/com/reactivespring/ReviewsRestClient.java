@@ -1,11 +1,19 @@
 package com.reactivespring;
 
 import com.reactivespring.domain.Review;
-import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.domain.ReviewSummary;
 import com.reactivespring.exception.ReviewsClientException;
-import com.reactivespring.util.RetryUtil;
+import com.reactivespring.exception.ReviewsServerException;
+import com.reactivespring.util.HedgingPolicy;
+import com.reactivespring.util.RequestCoalescer;
+import com.reactivespring.util.ResiliencePolicy;
+import com.reactivespring.util.RetryPolicy;
+import com.reactivespring.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.ClientResponse;
@@ -14,15 +22,61 @@ import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "restClient.transport", havingValue = "http", matchIfMissing = true)
 public class ReviewsRestClient {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private WebClient webClient;
     @Value("${restClient.reviewsUrl}")
     private String reviewsUrl;
 
-    ReviewsRestClient(WebClient webClient) {
+    @Value("${restClient.reviews.pageSize:0}")
+    private int pageSize;
+
+    @Value("${restClient.batch.maxSize:100}")
+    private int maxBatchSize;
+
+    @Value("${restClient.coalescing.enabled:false}")
+    private boolean coalescingEnabled;
+
+    @Value("${restClient.coalescing.window:10ms}")
+    private Duration coalescingWindow;
+
+    @Value("${restClient.singleFlight.enabled:true}")
+    private boolean singleFlightEnabled;
+
+    private RequestCoalescer<String, List<Review>> coalescer;
+    private final SingleFlight<String, List<Review>> singleFlight;
+    private final RetryPolicy retryPolicy;
+    private final ResiliencePolicy resiliencePolicy;
+    private final HedgingPolicy hedgingPolicy;
+
+    ReviewsRestClient(@Qualifier("reviewsWebClient") WebClient webClient, MeterRegistry meterRegistry,
+                      RetryPolicy retryPolicy, ResiliencePolicy resiliencePolicy, HedgingPolicy hedgingPolicy) {
         this.webClient = webClient;
+        this.retryPolicy = retryPolicy;
+        this.resiliencePolicy = resiliencePolicy;
+        this.hedgingPolicy = hedgingPolicy;
+        this.singleFlight = new SingleFlight<>("reviews", meterRegistry);
+    }
+
+    @PostConstruct
+    void initCoalescer() {
+        if (coalescingEnabled) {
+            coalescer = new RequestCoalescer<>(
+                    ids -> fetchReviews(ids).collect(Collectors.groupingBy(review -> String.valueOf(review.getMovieInfoId()))),
+                    movieId -> Mono.just(List.of()),
+                    maxBatchSize,
+                    coalescingWindow);
+        }
     }
 
     private static Mono<? extends Throwable> status4xx(ClientResponse clientResponse) {
@@ -36,17 +90,186 @@ public class ReviewsRestClient {
     private static Mono<? extends Throwable> status5xx(ClientResponse clientResponse) {
         log.info("Statuscode is: {}", clientResponse.statusCode().value());
         return clientResponse.bodyToMono(String.class)
-                .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException(
+                .flatMap(responseMessage -> Mono.error(new ReviewsServerException(
                         "ServerException in ReviewsService: " + clientResponse)));
     }
 
     public Flux<Review> retrieveReviews(String movieId) {
+        if (singleFlightEnabled) {
+            return singleFlight
+                    .execute(movieId, () -> loadReviews(movieId).collectList())
+                    .flatMapIterable(Function.identity());
+        }
+        return loadReviews(movieId);
+    }
+
+    private Flux<Review> loadReviews(String movieId) {
+        if (coalescer != null) {
+            return coalescer.load(movieId).flatMapIterable(Function.identity());
+        }
+        return requestReviews(movieId, CallPolicy.HEDGED)
+                .log();
+    }
+
+    /**
+     * Streams the reviews of one movie page by page as they are requested, without collecting them, for callers that
+     * relay a possibly huge review list. A partially consumed stream cannot be replayed, so there is no retry or hedging,
+     * and no single-flight or coalescing since those collect the reviews first. Every page still passes the circuit
+     * breaker and the concurrency limiter, so the stream fails fast while the reviews downstream is failing.
+     */
+    public Flux<Review> streamReviews(String movieId) {
+        return requestReviews(movieId, CallPolicy.PROTECTED);
+    }
+
+    /**
+     * Fetches the reviews of many movies with one request per chunk of {@code restClient.batch.maxSize} ids.
+     */
+    public Flux<Review> retrieveReviews(List<String> movieIds) {
+        return Flux.fromIterable(movieIds)
+                .distinct()
+                .buffer(maxBatchSize)
+                .flatMapSequential(this::fetchReviews);
+    }
+
+    /**
+     * Count, mean rating and rating histogram of one movie, computed by movies-review-service, for callers that do
+     * not need the review list itself.
+     */
+    public Mono<ReviewSummary> retrieveReviewSummary(String movieId) {
+        return retryPolicy.apply("reviews", requestReviewSummary(movieId),
+                        attempt -> hedgingPolicy.apply("reviews", resiliencePolicy.protect("reviews", attempt)))
+                .log();
+    }
+
+    /**
+     * The summaries of many movies, one request per chunk of {@code restClient.batch.maxSize} ids.
+     */
+    public Flux<ReviewSummary> retrieveReviewSummaries(List<String> movieIds) {
+        return Flux.fromIterable(movieIds)
+                .distinct()
+                .buffer(maxBatchSize)
+                .flatMapSequential(ids -> retryPolicy.apply("reviews", requestReviewSummaries(ids),
+                                attempt -> resiliencePolicy.protect("reviews", attempt))
+                        .log());
+    }
+
+    private Flux<Review> fetchReviews(List<String> movieIds) {
+        return requestReviews(movieIds, CallPolicy.RETRIED)
+                .log();
+    }
+
+    /**
+     * What is wrapped around every single request of a review lookup. A lookup that takes several requests, such as
+     * one page after another, guards each of them on its own: a failed request is retried without repeating the
+     * ones before it, and the circuit breaker and concurrency limiter time one request, not the whole lookup.
+     */
+    protected enum CallPolicy {
+        // retried, circuit broken, concurrency limited and hedged
+        HEDGED,
+        // retried, circuit broken and concurrency limited
+        RETRIED,
+        // circuit broken and concurrency limited, for reads that cannot be repeated
+        PROTECTED
+    }
+
+    protected <T> Mono<T> guard(Mono<T> call, CallPolicy policy) {
+        switch (policy) {
+            case HEDGED:
+                return retryPolicy.apply("reviews", call,
+                        attempt -> hedgingPolicy.apply("reviews", resiliencePolicy.protect("reviews", attempt)));
+            case RETRIED:
+                return retryPolicy.apply("reviews", call, attempt -> resiliencePolicy.protect("reviews", attempt));
+            default:
+                return resiliencePolicy.protect("reviews", call);
+        }
+    }
+
+    /**
+     * For a transport that answers a lookup with one stream instead of pages. A retried or hedged stream is collected
+     * first, so an attempt that fails halfway does not emit the elements of the failed attempt again. A
+     * {@link CallPolicy#PROTECTED} stream is relayed as it arrives and only its opening is guarded.
+     */
+    protected <T> Flux<T> guard(Flux<T> call, CallPolicy policy) {
+        if (policy == CallPolicy.PROTECTED) {
+            return resiliencePolicy.protectOpening("reviews", call);
+        }
+        return guard(call.collectList(), policy).flatMapIterable(Function.identity());
+    }
+
+    /**
+     * The reviews of a single movie, with {@code policy} around every request. Transport-specific: everything
+     * around it (single-flight, coalescing) is shared by every transport.
+     */
+    protected Flux<Review> requestReviews(String movieId, CallPolicy policy) {
+        return retrievePages(UriComponentsBuilder
+                .fromHttpUrl(reviewsUrl)
+                .queryParam("movieInfoId", movieId), policy);
+    }
+
+    /**
+     * The reviews of many movies, in batch requests.
+     */
+    protected Flux<Review> requestReviews(List<String> movieIds, CallPolicy policy) {
+        return retrievePages(UriComponentsBuilder
+                .fromHttpUrl(reviewsUrl)
+                .queryParam("movieInfoIds", String.join(",", movieIds)), policy);
+    }
+
+    /**
+     * movies-review-service returns reviews a page at a time, with the cursor of the next page in the
+     * {@value #NEXT_CURSOR_HEADER} header. Pages are fetched as the reviews are consumed, at most one page ahead, so
+     * a consumer that stops early or reads slowly does not pull the whole list. The page size is the server default
+     * unless {@code restClient.reviews.pageSize} is set. Every page is a request of its own under {@code policy}.
+     */
+    private Flux<Review> retrievePages(UriComponentsBuilder query, CallPolicy policy) {
+        return retrievePage(query, null, policy)
+                .expand(page -> page.nextCursor == null ? Mono.empty() : retrievePage(query, page.nextCursor, policy))
+                .concatMapIterable(page -> page.reviews, 1);
+    }
+
+    private Mono<ReviewPage> retrievePage(UriComponentsBuilder query, String cursor, CallPolicy policy) {
+        var page = query.cloneBuilder();
+        if (pageSize > 0) {
+            page.queryParam("limit", pageSize);
+        }
+        if (cursor != null) {
+            page.queryParam("after", cursor);
+        }
+        return guard(webClient
+                .get()
+                .uri(page.buildAndExpand().toUriString())
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, ReviewsRestClient::status4xx
+                )
+                .onStatus(HttpStatus::is5xxServerError, ReviewsRestClient::status5xx)
+                .toEntityList(Review.class)
+                .map(entity -> new ReviewPage(entity.getBody() == null ? List.of() : entity.getBody(),
+                        entity.getHeaders().getFirst(NEXT_CURSOR_HEADER))), policy);
+    }
+
+    protected Mono<ReviewSummary> requestReviewSummary(String movieId) {
         var url = UriComponentsBuilder
                 .fromHttpUrl(reviewsUrl)
+                .path("/summary")
                 .queryParam("movieInfoId", movieId)
                 .buildAndExpand()
                 .toUriString();
 
+        return retrieve(url, ReviewSummary.class).next();
+    }
+
+    protected Flux<ReviewSummary> requestReviewSummaries(List<String> movieIds) {
+        var url = UriComponentsBuilder
+                .fromHttpUrl(reviewsUrl)
+                .path("/summary")
+                .queryParam("movieInfoIds", String.join(",", movieIds))
+                .buildAndExpand()
+                .toUriString();
+
+        return retrieve(url, ReviewSummary.class);
+    }
+
+    private <T> Flux<T> retrieve(String url, Class<T> elementClass) {
         return webClient
                 .get()
                 .uri(url)
@@ -54,9 +277,16 @@ public class ReviewsRestClient {
                 .onStatus(HttpStatus::is4xxClientError, ReviewsRestClient::status4xx
                 )
                 .onStatus(HttpStatus::is5xxServerError, ReviewsRestClient::status5xx)
-                .bodyToFlux(Review.class)
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .bodyToFlux(elementClass);
     }
 
+    private static final class ReviewPage {
+        private final List<Review> reviews;
+        private final String nextCursor;
+
+        private ReviewPage(List<Review> reviews, String nextCursor) {
+            this.reviews = reviews;
+            this.nextCursor = nextCursor;
+        }
+    }
 }
\ No newline at end of file
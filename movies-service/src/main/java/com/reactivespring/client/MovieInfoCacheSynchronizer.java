@@ -0,0 +1,84 @@
+package com.reactivespring.client;
+
+import com.reactivespring.domain.MovieInfoEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * Keeps the local MovieInfo caches coherent by following the movies-info-service change stream in the
+ * background. The subscription reconnects with exponential backoff on errors and after the stream completes, resuming
+ * after the last event it applied so that changes made while it was disconnected are not missed. When those changes
+ * are no longer available the caches are invalidated instead.
+ */
+@Component
+@Slf4j
+@ConditionalOnExpression("(${restClient.cache.enabled:false} or ${restClient.negativeCache.enabled:false})"
+        + " and ${restClient.cache.streamSync.enabled:true}")
+public class MovieInfoCacheSynchronizer {
+
+    private final MoviesInfoRestClient moviesInfoRestClient;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private volatile Long lastSequence;
+    private Disposable subscription;
+
+    public MovieInfoCacheSynchronizer(MoviesInfoRestClient moviesInfoRestClient,
+                                      @Value("${restClient.cache.streamSync.minBackoff:1s}") Duration minBackoff,
+                                      @Value("${restClient.cache.streamSync.maxBackoff:30s}") Duration maxBackoff) {
+        this.moviesInfoRestClient = moviesInfoRestClient;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = Flux.defer(this::resume)
+                .doOnNext(event -> {
+                    moviesInfoRestClient.refreshCachedMovieInfo(event);
+                    lastSequence = event.getSequence();
+                })
+                .doOnError(ex -> log.warn("Movie info stream failed, reconnecting: {}", ex.getMessage()))
+                // transientErrors resets the backoff once the stream delivers again
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .transientErrors(true))
+                .repeatWhen(completed -> completed.delayElements(minBackoff))
+                .subscribe();
+    }
+
+    /**
+     * One connection to the stream, after the last applied event. When its first event does not directly follow that
+     * one, the events in between were evicted from the replay buffer or lost in a restart of movies-info-service, so
+     * nothing cached can be trusted any more.
+     */
+    private Flux<MovieInfoEvent> resume() {
+        var since = lastSequence;
+        log.info("Subscribing to the movie info stream after {}", since);
+        return moviesInfoRestClient.retrieveMovieInfoEvents(since)
+                .switchOnFirst((first, events) -> {
+                    if (since != null && first.hasValue() && first.get().getSequence() != since + 1) {
+                        log.warn("Movie info stream resumed at {} instead of {}, invalidating the caches",
+                                first.get().getSequence(), since + 1);
+                        moviesInfoRestClient.invalidateCachedMovieInfos();
+                    }
+                    return events;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
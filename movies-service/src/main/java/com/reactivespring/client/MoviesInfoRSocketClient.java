@@ -0,0 +1,108 @@
+package com.reactivespring.client;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.util.HedgingPolicy;
+import com.reactivespring.util.ResiliencePolicy;
+import com.reactivespring.util.RetryPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.rsocket.exceptions.InvalidException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link MoviesInfoRestClient} talking to the RSocket routes of movies-info-service over one multiplexed TCP
+ * connection, selected with {@code restClient.transport=rsocket}. Batches and the movie info stream are
+ * request-stream interactions, so demand from the caller is propagated to the server. Caching, coalescing,
+ * retries, circuit breaking and hedging are inherited unchanged. RSocket has no status codes: an empty response
+ * is a 404, a request the server rejects as INVALID is a 400, and every other failure is treated like a server
+ * error.
+ */
+@Component
+@ConditionalOnProperty(name = "restClient.transport", havingValue = "rsocket")
+@Slf4j
+public class MoviesInfoRSocketClient extends MoviesInfoRestClient {
+
+    private static final ResolvableType MOVIE_INFO_EVENT_TYPE = ResolvableType.forClass(MovieInfoEvent.class);
+
+    private final RSocketRequester requester;
+    private final RSocketStrategies rsocketStrategies;
+
+    public MoviesInfoRSocketClient(RSocketRequester.Builder requesterBuilder, RSocketStrategies rsocketStrategies,
+                                   @Value("${restClient.rsocket.moviesInfo.host:localhost}") String host,
+                                   @Value("${restClient.rsocket.moviesInfo.port:7080}") int port,
+                                   MeterRegistry meterRegistry, RetryPolicy retryPolicy,
+                                   ResiliencePolicy resiliencePolicy, HedgingPolicy hedgingPolicy) {
+        super(null, meterRegistry, retryPolicy, resiliencePolicy, hedgingPolicy);
+        this.requester = requesterBuilder.rsocketStrategies(rsocketStrategies).tcp(host, port);
+        this.rsocketStrategies = rsocketStrategies;
+    }
+
+    @Override
+    protected Mono<MovieInfo> requestMovieInfo(String movieId) {
+        return requester
+                .route("movieinfos.{id}", movieId)
+                .retrieveMono(MovieInfo.class)
+                .onErrorMap(MoviesInfoRSocketClient::failure)
+                .switchIfEmpty(Mono.error(() -> notFound(movieId)));
+    }
+
+    @Override
+    protected Flux<MovieInfo> requestMovieInfos(List<String> movieIds) {
+        return requester
+                .route("movieinfos.ids")
+                .data(movieIds)
+                .retrieveFlux(MovieInfo.class)
+                .onErrorMap(MoviesInfoRSocketClient::failure);
+    }
+
+    @Override
+    public Flux<MovieInfoEvent> retrieveMovieInfoEvents(Long since) {
+        var request = requester.route("movieinfos.stream");
+        return (since == null ? request : request.data(since))
+                .retrieveFlux(MovieInfoEvent.class)
+                .onErrorMap(MoviesInfoRSocketClient::failure);
+    }
+
+    /**
+     * RSocket frames carry one encoded movie info event each, usually CBOR, so the NDJSON lines are encoded here from
+     * the decoded events with the JSON encoder of the RSocket strategies, in the same format the HTTP stream relays.
+     */
+    @Override
+    public Flux<DataBuffer> retrieveMovieInfoStreamBuffers() {
+        Encoder<MovieInfoEvent> encoder = rsocketStrategies.encoder(MOVIE_INFO_EVENT_TYPE,
+                MediaType.APPLICATION_NDJSON);
+        return encoder.encode(retrieveMovieInfoEvents(null), rsocketStrategies.dataBufferFactory(),
+                MOVIE_INFO_EVENT_TYPE, MediaType.APPLICATION_NDJSON, Map.of());
+    }
+
+    private static Throwable failure(Throwable ex) {
+        log.info("RSocket request failed: {}", ex.toString());
+        if (ex instanceof InvalidException) {
+            return new MoviesInfoClientException(ex.getMessage(), HttpStatus.BAD_REQUEST.value());
+        }
+        return new MoviesInfoServerException("ServerException in MoviesinfoService: " + ex.getMessage());
+    }
+
+    @PreDestroy
+    void close() {
+        requester.rsocketClient().dispose();
+    }
+}
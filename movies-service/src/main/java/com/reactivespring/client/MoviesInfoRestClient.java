@@ -1,21 +1,41 @@
 package com.reactivespring.client;
 
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.util.HedgingPolicy;
+import com.reactivespring.util.NegativeCache;
+import com.reactivespring.util.ReactiveCache;
+import com.reactivespring.util.RequestCoalescer;
+import com.reactivespring.util.ResiliencePolicy;
+import com.reactivespring.util.RetryPolicy;
+import com.reactivespring.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.Exceptions;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
+import reactor.netty.http.client.HttpClientRequest;
 
+import javax.annotation.PostConstruct;
 import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
 
 @Component
+@ConditionalOnProperty(name = "restClient.transport", havingValue = "http", matchIfMissing = true)
 @Slf4j
 public class MoviesInfoRestClient {
     private final WebClient webClient;
@@ -23,17 +43,225 @@ public class MoviesInfoRestClient {
     @Value("${restClient.moviesInfoUrl}")
     private String moviesInfoUrl;
 
-    public MoviesInfoRestClient(WebClient webClient) {
+    @Value("${restClient.batch.maxSize:100}")
+    private int maxBatchSize;
+
+    @Value("${restClient.coalescing.enabled:false}")
+    private boolean coalescingEnabled;
+
+    @Value("${restClient.coalescing.window:10ms}")
+    private Duration coalescingWindow;
+
+    @Value("${restClient.singleFlight.enabled:true}")
+    private boolean singleFlightEnabled;
+
+    @Value("${restClient.cache.enabled:false}")
+    private boolean cacheEnabled;
+
+    @Value("${restClient.cache.maximumSize:10000}")
+    private long cacheMaximumSize;
+
+    @Value("${restClient.cache.ttl:60s}")
+    private Duration cacheTtl;
+
+    @Value("${restClient.cache.staleWhileRevalidate:5m}")
+    private Duration cacheStaleWhileRevalidate;
+
+    @Value("${restClient.negativeCache.enabled:false}")
+    private boolean negativeCacheEnabled;
+
+    @Value("${restClient.negativeCache.maximumSize:100000}")
+    private long negativeCacheMaximumSize;
+
+    @Value("${restClient.negativeCache.ttl:30s}")
+    private Duration negativeCacheTtl;
+
+    private RequestCoalescer<String, MovieInfo> coalescer;
+    private ReactiveCache<String, MovieInfo> cache;
+    private NegativeCache<String> negativeCache;
+    private final SingleFlight<String, MovieInfo> singleFlight;
+    private final MeterRegistry meterRegistry;
+    private final RetryPolicy retryPolicy;
+    private final ResiliencePolicy resiliencePolicy;
+    private final HedgingPolicy hedgingPolicy;
+
+    public MoviesInfoRestClient(@Qualifier("moviesInfoWebClient") WebClient webClient, MeterRegistry meterRegistry,
+                                RetryPolicy retryPolicy, ResiliencePolicy resiliencePolicy,
+                                HedgingPolicy hedgingPolicy) {
         this.webClient = webClient;
+        this.meterRegistry = meterRegistry;
+        this.retryPolicy = retryPolicy;
+        this.resiliencePolicy = resiliencePolicy;
+        this.hedgingPolicy = hedgingPolicy;
+        this.singleFlight = new SingleFlight<>("moviesInfo", meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        if (cacheEnabled) {
+            cache = new ReactiveCache<>("moviesInfo", this::loadMovieInfo, cacheMaximumSize,
+                    cacheTtl, cacheStaleWhileRevalidate, meterRegistry);
+        }
+        if (negativeCacheEnabled) {
+            negativeCache = new NegativeCache<>("moviesInfo.notFound", negativeCacheMaximumSize,
+                    negativeCacheTtl, meterRegistry);
+        }
+        if (coalescingEnabled) {
+            coalescer = new RequestCoalescer<>(
+                    ids -> fetchMovieInfos(ids).collectMap(MovieInfo::getMovieInfoId),
+                    movieId -> Mono.error(notFound(movieId)),
+                    maxBatchSize,
+                    coalescingWindow);
+        }
     }
 
     public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+        if (negativeCache == null) {
+            return lookupMovieInfo(movieId);
+        }
+        return Mono.defer(() -> {
+            if (negativeCache.isMissing(movieId)) {
+                return Mono.error(notFound(movieId));
+            }
+            var version = negativeCache.version();
+            return lookupMovieInfo(movieId)
+                    .doOnError(MoviesInfoRestClient::isNotFound, ex -> negativeCache.markMissing(movieId, version));
+        });
+    }
+
+    private Mono<MovieInfo> lookupMovieInfo(String movieId) {
+        return cache != null
+                ? cache.get(movieId)
+                : loadMovieInfo(movieId);
+    }
+
+    protected static MoviesInfoClientException notFound(String movieId) {
+        return new MoviesInfoClientException("There is no movie info available for the passed id: " + movieId,
+                HttpStatus.NOT_FOUND.value());
+    }
+
+    private static boolean isNotFound(Throwable ex) {
+        return ex instanceof MoviesInfoClientException
+                && ((MoviesInfoClientException) ex).getStatusCode() == HttpStatus.NOT_FOUND.value();
+    }
+
+    private Mono<MovieInfo> loadMovieInfo(String movieId) {
+        return singleFlightEnabled
+                ? singleFlight.execute(movieId, () -> fetchOrCoalesce(movieId))
+                : fetchOrCoalesce(movieId);
+    }
+
+    private Mono<MovieInfo> fetchOrCoalesce(String movieId) {
+        return coalescer != null
+                ? coalescer.load(movieId)
+                : fetchMovieInfo(movieId);
+    }
+
+    /**
+     * Applies a change pushed by movies-info-service to the caches, so a long TTL does not mean serving stale data.
+     * A changed movie info replaces the cached entry and forgets an earlier NOT_FOUND for the id; a deleted one is
+     * evicted and remembered as NOT_FOUND. No-op when the caches are disabled.
+     */
+    public void refreshCachedMovieInfo(MovieInfoEvent event) {
+        var movieId = event.getMovieInfo() == null ? null : event.getMovieInfo().getMovieInfoId();
+        if (movieId == null) {
+            return;
+        }
+        if (event.isDelete()) {
+            if (cache != null) {
+                cache.invalidate(movieId);
+            }
+            if (negativeCache != null) {
+                negativeCache.markMissing(movieId);
+            }
+            return;
+        }
+        var movieInfo = event.getMovieInfo();
+        if (negativeCache != null) {
+            negativeCache.invalidate(movieId);
+        }
+        if (cache != null) {
+            cache.put(movieId, movieInfo);
+        }
+    }
+
+    /**
+     * Forgets every cached movie info and NOT_FOUND, for when changes may have been missed.
+     */
+    public void invalidateCachedMovieInfos() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+        if (negativeCache != null) {
+            negativeCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Looks up many movie infos with as few round trips as possible: ids are de-duplicated and sent to the
+     * batch endpoint in chunks of {@code restClient.batch.maxSize}. Unknown ids are simply absent.
+     */
+    public Flux<MovieInfo> retrieveMovieInfos(List<String> movieIds) {
+        return Flux.fromIterable(movieIds)
+                .distinct()
+                .buffer(maxBatchSize)
+                .flatMapSequential(this::fetchMovieInfos);
+    }
+
+    /**
+     * The batch is collected before it is retried, so an attempt that fails halfway through the response does not
+     * emit its movie infos a second time.
+     */
+    private Flux<MovieInfo> fetchMovieInfos(List<String> movieIds) {
+        return retryPolicy.apply("moviesInfo", requestMovieInfos(movieIds).collectList(),
+                        attempt -> resiliencePolicy.protect("moviesInfo", attempt))
+                .flatMapIterable(Function.identity());
+    }
+
+    private Mono<MovieInfo> fetchMovieInfo(String movieId) {
+        return retryPolicy.apply("moviesInfo", requestMovieInfo(movieId),
+                        attempt -> hedgingPolicy.apply("moviesInfo", resiliencePolicy.protect("moviesInfo", attempt)))
+                .log();
+    }
+
+    /**
+     * One batch request to movies-info-service. Transport-specific: everything around it (caching, coalescing,
+     * retries, circuit breaking, hedging) is shared by every transport.
+     */
+    protected Flux<MovieInfo> requestMovieInfos(List<String> movieIds) {
+        var url = UriComponentsBuilder
+                .fromHttpUrl(moviesInfoUrl)
+                .queryParam("ids", String.join(",", movieIds))
+                .buildAndExpand()
+                .toUriString();
+
+        return webClient
+                .get()
+                .uri(url)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
+                            log.info("Statuscode is: {}", clientResponse.statusCode().value());
+                            return clientResponse.bodyToMono(String.class)
+                                    .flatMap(responseMessage -> Mono.error(
+                                            new MoviesInfoClientException(responseMessage,
+                                                    clientResponse.statusCode().value())));
+                        }
+                )
+                .onStatus(HttpStatus::is5xxServerError, clientResponse -> {
+                    log.info("Statuscode is: {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException(
+                                    "ServerException in MoviesinfoService: " + clientResponse)));
+                })
+                .bodyToFlux(MovieInfo.class);
+    }
+
+    /**
+     * One single-id request to movies-info-service, failing with a 404 {@link MoviesInfoClientException} when the
+     * movie info does not exist.
+     */
+    protected Mono<MovieInfo> requestMovieInfo(String movieId) {
         var url = moviesInfoUrl.concat("/{id}");
-        var retrySpec = Retry
-                .fixedDelay(3, Duration.ofSeconds(1))
-                .filter(MoviesInfoServerException.class::isInstance)
-                .onRetryExhaustedThrow(
-                        (retryBackoffSpec, retrySignal) -> Exceptions.propagate(retrySignal.failure()));
 
         return webClient
                 .get()
@@ -42,9 +270,7 @@ public class MoviesInfoRestClient {
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                             log.info("Statuscode is: {}", clientResponse.statusCode().value());
                             return clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)
-                                    ? Mono.error(
-                                    new MoviesInfoClientException("There is no movie info available for the passed id: " + movieId,
-                                            clientResponse.statusCode().value()))
+                                    ? Mono.error(notFound(movieId))
                                     : clientResponse.bodyToMono(String.class)
                                     .flatMap(responseMessage -> Mono.error(
                                             new MoviesInfoClientException(responseMessage,
@@ -57,17 +283,54 @@ public class MoviesInfoRestClient {
                             .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException(
                                     "ServerException in MoviesinfoService: " + clientResponse)));
                 })
-                .bodyToMono(MovieInfo.class)
-                .retryWhen(retrySpec)
-                .log();
+                .bodyToMono(MovieInfo.class);
     }
 
+    /**
+     * The inserted and updated movie infos of the movie info stream, for the feed. Deletes are left out, since a
+     * deleted movie info only carries its id; the events and the relayed stream buffers include them.
+     */
     public Flux<MovieInfo> retrieveMovieInfoStream() {
-        var url = moviesInfoUrl.concat("/stream");
+        return retrieveMovieInfoEvents(null)
+                .filter(event -> !event.isDelete())
+                .map(MovieInfoEvent::getMovieInfo)
+                .log();
+    }
+
+    /**
+     * Every change of the movie info stream, deletes included, with its sequence. Starts right after {@code since}
+     * when it is not null.
+     */
+    public Flux<MovieInfoEvent> retrieveMovieInfoEvents(Long since) {
+        return streamRequest(since)
+                .bodyToFlux(MovieInfoEvent.class);
+    }
+
+    /**
+     * The movie info stream as the NDJSON bytes movies-info-service sends, for relaying without decoding, so deletes
+     * and the sequence and operation of every change are relayed too. The buffers come straight from the pooled
+     * connection. The subscriber must write or release every buffer it receives; buffers still queued when the
+     * stream is cancelled or fails are released here.
+     */
+    public Flux<DataBuffer> retrieveMovieInfoStreamBuffers() {
+        return streamRequest(null)
+                .bodyToFlux(DataBuffer.class)
+                .doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+    }
+
+    private WebClient.ResponseSpec streamRequest(Long since) {
+        var url = UriComponentsBuilder
+                .fromHttpUrl(moviesInfoUrl.concat("/stream"))
+                .queryParamIfPresent("since", Optional.ofNullable(since))
+                .buildAndExpand()
+                .toUriString();
 
         return webClient
                 .get()
                 .uri(url)
+                .accept(MediaType.APPLICATION_NDJSON)
+                // an idle stream is not a slow response, so the client-wide response timeout does not apply here
+                .httpRequest(request -> request.<HttpClientRequest>getNativeRequest().responseTimeout(null))
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, clientResponse -> {
                             log.info("Statuscode is: {}", clientResponse.statusCode().value());
@@ -82,8 +345,6 @@ public class MoviesInfoRestClient {
                     return clientResponse.bodyToMono(String.class)
                             .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException(
                                     "ServerException in MoviesinfoService: " + clientResponse)));
-                })
-                .bodyToFlux(MovieInfo.class)
-                .log();
+                });
     }
 }
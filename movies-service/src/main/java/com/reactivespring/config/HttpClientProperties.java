@@ -0,0 +1,37 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import reactor.netty.http.HttpProtocol;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Transport settings for the downstream WebClients, bound from {@code restClient.http}. Each downstream gets its
+ * own connection pool so that a slow movies-review-service cannot exhaust the connections movies-info-service
+ * calls need.
+ */
+@Data
+@ConfigurationProperties("rest-client.http")
+public class HttpClientProperties {
+
+    // HTTP11, or H2C to multiplex calls over a few cleartext HTTP/2 connections (backends need server.http2.enabled)
+    private List<HttpProtocol> protocols = List.of(HttpProtocol.HTTP11);
+    private Duration connectTimeout = Duration.ofSeconds(1);
+    private Duration responseTimeout = Duration.ofSeconds(5);
+    // prefer Smile (binary JSON) responses; a backend that cannot produce Smile still answers in JSON
+    private boolean smile = true;
+    private Pool moviesInfo = new Pool();
+    private Pool reviews = new Pool();
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 100;
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictionInterval = Duration.ofSeconds(30);
+    }
+}
@@ -0,0 +1,47 @@
+package com.reactivespring.config;
+
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import com.reactivespring.util.RetryPolicy;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class ResilienceConfig {
+
+    /**
+     * One circuit breaker per downstream, opened on transient failures (5xx, timeouts, connection errors) and
+     * slow calls; client errors count as successes and concurrency-limit rejections are not recorded at all.
+     */
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(
+            @Value("${restClient.circuitBreaker.failureRateThreshold:50}") float failureRateThreshold,
+            @Value("${restClient.circuitBreaker.slowCallRateThreshold:80}") float slowCallRateThreshold,
+            @Value("${restClient.circuitBreaker.slowCallDurationThreshold:2s}") Duration slowCallDurationThreshold,
+            @Value("${restClient.circuitBreaker.slidingWindowSize:20}") int slidingWindowSize,
+            @Value("${restClient.circuitBreaker.minimumNumberOfCalls:10}") int minimumNumberOfCalls,
+            @Value("${restClient.circuitBreaker.waitDurationInOpenState:10s}") Duration waitDurationInOpenState,
+            @Value("${restClient.circuitBreaker.permittedCallsInHalfOpenState:3}") int permittedCallsInHalfOpenState,
+            MeterRegistry meterRegistry) {
+        var config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(slowCallDurationThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(waitDurationInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(permittedCallsInHalfOpenState)
+                .recordException(RetryPolicy::isTransient)
+                .ignoreExceptions(ConcurrencyLimitExceededException.class)
+                .build();
+        var registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+}
@@ -1,14 +1,67 @@
 package com.reactivespring.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
 
 @Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
 public class WebClientConfig {
 
+    private static final MediaType JSON_FALLBACK = MediaType.parseMediaType("application/json;q=0.9");
+
+    @Bean
+    public WebClient moviesInfoWebClient(WebClient.Builder builder, HttpClientProperties properties) {
+        return webClient(builder, properties, "moviesInfo", properties.getMoviesInfo());
+    }
+
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    public WebClient reviewsWebClient(WebClient.Builder builder, HttpClientProperties properties) {
+        return webClient(builder, properties, "reviews", properties.getReviews());
+    }
+
+    /**
+     * A WebClient on its own bounded connection pool. Requests beyond {@code maxConnections} wait in a queue of at
+     * most {@code pendingAcquireMaxCount} for up to {@code pendingAcquireTimeout} and then fail instead of piling
+     * up. Idle and old connections are evicted in the background. The pool publishes the
+     * {@code reactor.netty.connection.provider.*} gauges (total, active, idle and pending connections) tagged
+     * with {@code name}. With {@code protocols: H2C} the pool holds HTTP/2 connections that each carry many
+     * concurrent requests as separate streams. With {@code smile} every request accepts Smile ahead of JSON, which
+     * saves the backends and movies-service the text encoding and parsing; streaming calls override the Accept
+     * header with their own media type.
+     */
+    private static WebClient webClient(WebClient.Builder builder, HttpClientProperties properties,
+                                       String name, HttpClientProperties.Pool pool) {
+        var connectionProvider = ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictionInterval())
+                .metrics(true)
+                .build();
+        var httpClient = HttpClient.create(connectionProvider)
+                .protocol(properties.getProtocols().toArray(HttpProtocol[]::new))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getResponseTimeout());
+
+        if (properties.isSmile()) {
+            builder.defaultHeaders(headers -> headers.setAccept(List.of(
+                    CodecConfig.APPLICATION_SMILE, JSON_FALLBACK)));
+        }
+
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
     }
 }
@@ -1,40 +1,289 @@
 package com.reactivespring.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.reactivespring.ReviewsRestClient;
 import com.reactivespring.client.MoviesInfoRestClient;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import com.reactivespring.exception.ReviewsServerException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @RestController
 @RequestMapping("/v1/movies")
+@Slf4j
 public class MoviesController {
 
+    public static final String LATENCY_BUDGET_HEADER = "X-Latency-Budget";
+    public static final String SUMMARY_VIEW = "summary";
+
+    private static final ResolvableType MOVIE_INFO_EVENT_TYPE = ResolvableType.forClass(MovieInfoEvent.class);
+
     private MoviesInfoRestClient moviesInfoRestClient;
     private ReviewsRestClient reviewsRestClient;
 
-    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient) {
+    @Value("${movies.concurrentFanOut:true}")
+    private boolean concurrentFanOut;
+
+    @Value("${movies.reviewsLatencyBudget.enabled:true}")
+    private boolean latencyBudgetEnabled;
+
+    @Value("${movies.reviewsLatencyBudget.default:2s}")
+    private Duration defaultLatencyBudget;
+
+    @Value("${movies.reviewsLatencyBudget.max:5s}")
+    private Duration maxLatencyBudget;
+
+    @Value("${movies.stream.passthrough:true}")
+    private boolean streamPassthrough;
+
+    @Value("${movies.reviewStream.maxReviews:10000}")
+    private long maxStreamedReviews;
+
+    @Value("${movies.feed.concurrency:16}")
+    private int feedConcurrency;
+
+    @Value("${movies.feed.prefetch:32}")
+    private int feedPrefetch;
+
+    private final MeterRegistry meterRegistry;
+    private final Jackson2JsonEncoder streamEncoder;
+
+    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient,
+                            MeterRegistry meterRegistry, ObjectMapper objectMapper) {
         this.moviesInfoRestClient = moviesInfoRestClient;
         this.reviewsRestClient = reviewsRestClient;
+        this.meterRegistry = meterRegistry;
+        this.streamEncoder = new Jackson2JsonEncoder(objectMapper);
     }
 
+    /**
+     * The reviews part is bounded by a latency budget ({@code movies.reviewsLatencyBudget.default}, or the
+     * {@value #LATENCY_BUDGET_HEADER} request header such as {@code 300ms}, capped at
+     * {@code movies.reviewsLatencyBudget.max}). When the reviews do not arrive in time, or the reviews
+     * downstream is rejecting calls or failing, the movie is returned with {@code degraded=true} and no review list.
+     * With {@code view=summary} the movie carries the review count, mean rating and rating histogram instead of
+     * the review list, so its size no longer grows with the number of reviews.
+     */
     @GetMapping("/{id}")
-    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId) {
+    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId,
+                                         @RequestParam(value = "view", required = false) String view,
+                                         @RequestHeader(value = LATENCY_BUDGET_HEADER, required = false)
+                                                 String latencyBudgetHeader) {
+        return Mono.defer(() -> {
+            var deadline = System.nanoTime() + latencyBudget(latencyBudgetHeader).toNanos();
+            var reviewsPart = retrieveReviewsWithinBudget(movieId, SUMMARY_VIEW.equals(view), deadline);
+            return concurrentFanOut
+                    ? retrieveMovieConcurrently(movieId, reviewsPart)
+                    : retrieveMovieSequentially(movieId, reviewsPart);
+        });
+    }
+
+    /**
+     * The streaming variant of {@link #retrieveMovieById}, chosen with {@code Accept: application/x-ndjson}: the
+     * MovieInfo is the first line and every following line is one review, relayed under backpressure as it
+     * arrives instead of being collected first. At most {@code limit} reviews are sent, capped at
+     * {@code movies.reviewStream.maxReviews}. A missing movie is a 404 before anything is written.
+     */
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Object> streamMovieById(@PathVariable("id") String movieId,
+                                        @RequestParam(value = "limit", required = false) Long limit) {
+        var maxReviews = limit == null ? maxStreamedReviews : Math.max(0, Math.min(limit, maxStreamedReviews));
+        return moviesInfoRestClient.retrieveMovieInfo(movieId)
+                .flatMapMany(movieInfo -> Flux.<Object>concat(
+                        Mono.just(movieInfo),
+                        reviewsRestClient.streamReviews(movieId).limitRequest(maxReviews)));
+    }
+
+    private Mono<Movie> retrieveMovieSequentially(String movieId, Mono<Function<MovieInfo, Movie>> reviewsPart) {
         return moviesInfoRestClient.retrieveMovieInfo(movieId)
-                .flatMap(movieInfo -> reviewsRestClient
-                        .retrieveReviews(movieId)
-                        .collectList()
-                        .map(reviews -> new Movie(movieInfo, reviews)));
+                .flatMap(movieInfo -> reviewsPart.map(toMovie -> toMovie.apply(movieInfo)));
     }
 
+    /**
+     * Both lookups only need the path id, so they are subscribed at the same time and the latency is
+     * max(info, reviews) instead of their sum. The reviews outcome is materialized so that the movie info
+     * result always wins: a missing movie is still a 404 even if the reviews call failed first, and an
+     * info error cancels the in-flight reviews call.
+     */
+    private Mono<Movie> retrieveMovieConcurrently(String movieId, Mono<Function<MovieInfo, Movie>> reviewsPart) {
+        var reviewsSignal = reviewsPart.materialize();
+
+        return Mono.zip(moviesInfoRestClient.retrieveMovieInfo(movieId), reviewsSignal)
+                .flatMap(tuple -> Mono.just(tuple.getT2())
+                        .<Function<MovieInfo, Movie>>dematerialize()
+                        .map(toMovie -> toMovie.apply(tuple.getT1())));
+    }
+
+    /**
+     * The reviews or the review summary of a movie, as the step that completes the movie once its info is known.
+     * Within the latency budget, or resolving to a degraded movie when the reviews are unavailable. The timeout is
+     * what is left of the budget when the reviews call starts, so in sequential mode the movie info latency counts
+     * against it too.
+     */
+    private Mono<Function<MovieInfo, Movie>> retrieveReviewsWithinBudget(String movieId, boolean summary,
+                                                                         long deadline) {
+        Mono<Function<MovieInfo, Movie>> reviewsPart = summary
+                ? reviewsRestClient.retrieveReviewSummary(movieId)
+                .map(reviewSummary -> movieInfo -> new Movie(movieInfo, reviewSummary))
+                : reviewsRestClient.retrieveReviews(movieId)
+                .collectList()
+                .map(reviews -> movieInfo -> new Movie(movieInfo, reviews));
+        if (!latencyBudgetEnabled) {
+            return reviewsPart;
+        }
+        return Mono.defer(() -> reviewsPart.timeout(Duration.ofNanos(Math.max(0, deadline - System.nanoTime()))))
+                .onErrorResume(MoviesController::isReviewsUnavailable, ex -> {
+                    log.warn("Serving movie {} without reviews: {}", movieId, ex.toString());
+                    meterRegistry.counter("movies.degraded", "reason", degradedReason(ex)).increment();
+                    return Mono.just(Movie::degraded);
+                });
+    }
+
+    private static boolean isReviewsUnavailable(Throwable ex) {
+        return ex instanceof TimeoutException
+                || ex instanceof CallNotPermittedException
+                || ex instanceof ConcurrencyLimitExceededException
+                || ex instanceof ReviewsServerException;
+    }
+
+    private static String degradedReason(Throwable ex) {
+        if (ex instanceof TimeoutException) {
+            return "timeout";
+        }
+        return ex instanceof ReviewsServerException ? "error" : "rejected";
+    }
+
+    private Duration latencyBudget(String latencyBudgetHeader) {
+        if (latencyBudgetHeader == null) {
+            return defaultLatencyBudget;
+        }
+        try {
+            var requested = DurationStyle.detectAndParse(latencyBudgetHeader);
+            if (requested.isNegative()) {
+                return defaultLatencyBudget;
+            }
+            return requested.compareTo(maxLatencyBudget) > 0 ? maxLatencyBudget : requested;
+        } catch (IllegalArgumentException ex) {
+            log.debug("Ignoring invalid {} header: {}", LATENCY_BUDGET_HEADER, latencyBudgetHeader);
+            return defaultLatencyBudget;
+        }
+    }
+
+    @GetMapping(params = "ids")
+    public Flux<Movie> retrieveMoviesByIds(@RequestParam("ids") List<String> movieIds,
+                                           @RequestParam(value = "view", required = false) String view) {
+        return retrieveMovies(movieIds, SUMMARY_VIEW.equals(view));
+    }
+
+    @PostMapping("/batch")
+    public Flux<Movie> retrieveMoviesByIdsBatch(@RequestBody List<String> movieIds,
+                                                @RequestParam(value = "view", required = false) String view) {
+        return retrieveMovies(movieIds, SUMMARY_VIEW.equals(view));
+    }
+
+    /**
+     * Resolves all ids with one batched movie-info call and one batched reviews call (per chunk) instead of
+     * two round trips per id. Movies are emitted in request order and unknown ids are skipped.
+     */
+    private Flux<Movie> retrieveMovies(List<String> movieIds, boolean summary) {
+        var ids = movieIds.stream()
+                .distinct()
+                .collect(Collectors.toList());
+        var movieInfos = moviesInfoRestClient
+                .retrieveMovieInfos(ids)
+                .collectMap(MovieInfo::getMovieInfoId);
+        var reviewsParts = summary ? retrieveReviewSummaryParts(ids) : retrieveReviewParts(ids);
+
+        return Mono.zip(movieInfos, reviewsParts)
+                .flatMapMany(tuple -> Flux.fromIterable(ids)
+                        .filter(tuple.getT1()::containsKey)
+                        .map(id -> tuple.getT2().apply(id, tuple.getT1().get(id))));
+    }
+
+    private Mono<BiFunction<String, MovieInfo, Movie>> retrieveReviewParts(List<String> ids) {
+        return reviewsRestClient
+                .retrieveReviews(ids)
+                .collect(Collectors.groupingBy(review -> String.valueOf(review.getMovieInfoId())))
+                .map(reviews -> (id, movieInfo) -> new Movie(movieInfo, reviews.getOrDefault(id, List.of())));
+    }
+
+    private Mono<BiFunction<String, MovieInfo, Movie>> retrieveReviewSummaryParts(List<String> ids) {
+        return reviewsRestClient
+                .retrieveReviewSummaries(ids)
+                .collectMap(reviewSummary -> String.valueOf(reviewSummary.getMovieInfoId()))
+                .map(summaries -> (id, movieInfo) -> new Movie(movieInfo, summaries.get(id)));
+    }
+
+    /**
+     * The movie info stream of movies-info-service as NDJSON, one {@link MovieInfoEvent} per line whatever the mode
+     * or transport. Deletes are part of this stream, as {@code "operation":"delete"} lines carrying only the id, so
+     * that clients can drop the movie; {@link #retrieveMovieFeed} leaves them out. With
+     * {@code movies.stream.passthrough} the NDJSON bytes from movies-info-service are relayed as they arrive, in the
+     * pooled buffers they were read into, instead of being decoded and encoded again. Writing a buffer to the
+     * response releases it.
+     */
     @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
-    public Flux<MovieInfo> retrieveMovieInfos() {
-        return moviesInfoRestClient.retrieveMovieInfoStream();
+    public Flux<DataBuffer> retrieveMovieInfos(ServerHttpResponse response) {
+        if (streamPassthrough) {
+            return moviesInfoRestClient.retrieveMovieInfoStreamBuffers();
+        }
+        return streamEncoder.encode(moviesInfoRestClient.retrieveMovieInfoEvents(null), response.bufferFactory(),
+                MOVIE_INFO_EVENT_TYPE, MediaType.APPLICATION_NDJSON, Map.of());
+    }
+
+    /**
+     * A live feed of full movies: every MovieInfo from the movies-info-service stream is enriched with its reviews
+     * within the default latency budget, so a slow or failed review lookup degrades that one movie instead of
+     * stalling or ending the feed. At most {@code movies.feed.concurrency} review lookups run at a time and at most
+     * {@code movies.feed.prefetch} movie infos are buffered ahead of them. Movies are emitted as soon as they are
+     * complete, so the order can differ from the stream, and nothing is requested upstream beyond what the client
+     * and those two bounds allow. With {@code view=summary} every movie carries its review summary instead of the
+     * review list, one small lookup per movie however many reviews it has.
+     */
+    @GetMapping(value = "/feed", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Movie> retrieveMovieFeed(@RequestParam(value = "view", required = false) String view) {
+        var summary = SUMMARY_VIEW.equals(view);
+        return moviesInfoRestClient.retrieveMovieInfoStream()
+                .limitRate(feedPrefetch)
+                .flatMap(movieInfo -> {
+                    var deadline = System.nanoTime() + defaultLatencyBudget.toNanos();
+                    return retrieveReviewsWithinBudget(movieInfo.getMovieInfoId(), summary, deadline)
+                            .onErrorResume(ex -> {
+                                log.warn("Serving movie {} in the feed without reviews: {}",
+                                        movieInfo.getMovieInfoId(), ex.toString());
+                                meterRegistry.counter("movies.degraded", "reason", "error").increment();
+                                return Mono.just(Movie::degraded);
+                            })
+                            .map(toMovie -> toMovie.apply(movieInfo));
+                }, feedConcurrency);
     }
 }
@@ -14,4 +14,20 @@ public class Movie {
 
     private MovieInfo movieInfo;
     private List<Review> reviewList;
+    // set instead of reviewList for the summary view
+    private ReviewSummary reviewSummary;
+    // reviews did not arrive within the latency budget; reviewList and reviewSummary are null
+    private boolean degraded;
+
+    public Movie(MovieInfo movieInfo, List<Review> reviewList) {
+        this(movieInfo, reviewList, null, false);
+    }
+
+    public Movie(MovieInfo movieInfo, ReviewSummary reviewSummary) {
+        this(movieInfo, null, reviewSummary, false);
+    }
+
+    public static Movie degraded(MovieInfo movieInfo) {
+        return new Movie(movieInfo, null, null, true);
+    }
 }
@@ -0,0 +1,30 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of the movies-info-service movie info stream: the changed movie info, its position in the stream and the
+ * change that produced it: {@code insert}, {@code update}, {@code replace} or {@code delete}. A deleted movie info
+ * only carries its id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoEvent {
+
+    public static final String DELETE = "delete";
+
+    private long sequence;
+    private String operation;
+    @JsonUnwrapped
+    private MovieInfo movieInfo;
+
+    @JsonIgnore
+    public boolean isDelete() {
+        return DELETE.equals(operation);
+    }
+}
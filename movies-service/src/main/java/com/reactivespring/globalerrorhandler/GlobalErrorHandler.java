@@ -1,6 +1,8 @@
 package com.reactivespring.globalerrorhandler;
 
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
 import com.reactivespring.exception.MoviesInfoClientException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +18,12 @@ public class GlobalErrorHandler {
         return ResponseEntity.status(ex.getStatusCode()).body(ex.getMessage());
     }
 
+    @ExceptionHandler({CallNotPermittedException.class, ConcurrencyLimitExceededException.class})
+    public ResponseEntity<String> handleRejectedException(RuntimeException ex) {
+        log.warn("Downstream call rejected: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ex.getMessage());
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<String> handleRuntimeException(RuntimeException ex) {
         log.error("Exception caught in handleClientException: {}", ex.getMessage());
@@ -0,0 +1,164 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * AIMD concurrency limit for one downstream. Calls beyond the current limit are rejected immediately with
+ * {@link ConcurrencyLimitExceededException} instead of queueing for a connection. A call slower than
+ * {@code latencyThreshold}, or failing with a {@code drop} error, shrinks the limit by {@code backoffRatio}; a fast
+ * success while at least half of the limit is in use grows it by one. Cancelled calls free their slot without
+ * moving the limit. {@code concurrency.limit} and {@code concurrency.inflight} are gauges,
+ * {@code concurrency.rejected} counts rejections, all tagged with {@code downstream=name}.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final Predicate<Throwable> drop;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+    private double limit;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      Duration latencyThreshold, double backoffRatio, Predicate<Throwable> drop,
+                                      MeterRegistry meterRegistry) {
+        this(name, initialLimit, minLimit, maxLimit, latencyThreshold, backoffRatio, drop, meterRegistry,
+                System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                               Duration latencyThreshold, double backoffRatio, Predicate<Throwable> drop,
+                               MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.drop = drop;
+        this.nanoClock = nanoClock;
+        this.rejected = Counter.builder("concurrency.rejected").tag("downstream", name).register(meterRegistry);
+        Gauge.builder("concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("downstream", name)
+                .register(meterRegistry);
+        Gauge.builder("concurrency.inflight", inFlight, AtomicInteger::get)
+                .tag("downstream", name)
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> limit(Mono<T> call) {
+        return Mono.defer(() -> {
+            var permit = tryAcquire();
+            if (permit == null) {
+                return Mono.error(rejection());
+            }
+            return call
+                    .doOnSuccess(value -> permit.release(null))
+                    .doOnError(permit::release)
+                    .doOnCancel(permit::releaseIgnored);
+        });
+    }
+
+    public <T> Flux<T> limit(Flux<T> call) {
+        return Flux.defer(() -> {
+            var permit = tryAcquire();
+            if (permit == null) {
+                return Flux.error(rejection());
+            }
+            return call
+                    .doOnComplete(() -> permit.release(null))
+                    .doOnError(permit::release)
+                    .doOnCancel(permit::releaseIgnored);
+        });
+    }
+
+    /**
+     * Holds the slot of a long-lived stream only until its first signal, so the time to open the stream is what is
+     * sampled and a stream that stays open for minutes neither looks slow nor keeps a slot.
+     */
+    public <T> Flux<T> limitOpening(Flux<T> stream) {
+        return Flux.defer(() -> {
+            var permit = tryAcquire();
+            if (permit == null) {
+                return Flux.error(rejection());
+            }
+            return stream
+                    .doOnNext(value -> permit.release(null))
+                    .doOnComplete(() -> permit.release(null))
+                    .doOnError(permit::release)
+                    .doOnCancel(permit::releaseIgnored);
+        });
+    }
+
+    public synchronized double getLimit() {
+        return limit;
+    }
+
+    int inFlightCount() {
+        return inFlight.get();
+    }
+
+    private Permit tryAcquire() {
+        while (true) {
+            var current = inFlight.get();
+            if (current >= (int) getLimit()) {
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    private ConcurrencyLimitExceededException rejection() {
+        rejected.increment();
+        return new ConcurrencyLimitExceededException(
+                "Concurrency limit of " + (int) getLimit() + " reached for calls to " + name);
+    }
+
+    private synchronized void onSample(long latencyNanos, Throwable failure, int inFlightAtStart) {
+        if ((failure != null && drop.test(failure)) || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (failure == null && inFlightAtStart * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    private class Permit {
+        private final long startNanos = nanoClock.getAsLong();
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        void release(Throwable failure) {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                onSample(nanoClock.getAsLong() - startNanos, failure, inFlightAtStart);
+            }
+        }
+
+        void releaseIgnored() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
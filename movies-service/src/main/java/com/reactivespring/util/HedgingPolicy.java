@@ -0,0 +1,138 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hedged requests for idempotent single-key lookups: when an attempt has not produced its first signal within the
+ * downstream's observed {@code percentile} latency (clamped to {@code minDelay}..{@code maxDelay}, and
+ * {@code maxDelay} until enough samples exist), the same call is subscribed a second time and whichever answers
+ * first wins; the other is cancelled. Hedges are paid from their own {@link RetryBudget}, capping them at
+ * {@code budget.percent} of traffic. {@code hedge.sent} counts hedges and {@code hedge.wins} (result=primary|hedge)
+ * which of the two answered first, tagged with {@code downstream}.
+ */
+@Component
+@Slf4j
+public class HedgingPolicy {
+
+    private static final String PRIMARY = "primary";
+    private static final String HEDGE = "hedge";
+
+    private final boolean enabled;
+    private final double percentile;
+    private final Duration minDelay;
+    private final Duration maxDelay;
+    private final int windowSize;
+    private final RetryBudget budget;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DownstreamHedge> hedges = new ConcurrentHashMap<>();
+
+    public HedgingPolicy(@Value("${restClient.hedging.enabled:false}") boolean enabled,
+                         @Value("${restClient.hedging.percentile:0.95}") double percentile,
+                         @Value("${restClient.hedging.minDelay:20ms}") Duration minDelay,
+                         @Value("${restClient.hedging.maxDelay:1s}") Duration maxDelay,
+                         @Value("${restClient.hedging.windowSize:1000}") int windowSize,
+                         @Value("${restClient.hedging.budget.percent:10}") double budgetPercent,
+                         @Value("${restClient.hedging.budget.maxTokens:5}") double budgetMaxTokens,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+        this.windowSize = windowSize;
+        this.budget = new RetryBudget(budgetPercent, budgetMaxTokens);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Mono<T> apply(String downstream, Mono<T> call) {
+        return enabled ? Mono.from(apply(downstream, call.flux())) : call;
+    }
+
+    public <T> Flux<T> apply(String downstream, Flux<T> call) {
+        return enabled ? hedges.computeIfAbsent(downstream, DownstreamHedge::new).hedge(call) : call;
+    }
+
+    Duration hedgeDelay(String downstream) {
+        return hedges.computeIfAbsent(downstream, DownstreamHedge::new).hedgeDelay();
+    }
+
+    private class DownstreamHedge {
+        private final String downstream;
+        private final LatencyWindow latencies = new LatencyWindow(windowSize, percentile);
+        private final Counter sent;
+        private final Counter primaryWins;
+        private final Counter hedgeWins;
+
+        DownstreamHedge(String downstream) {
+            this.downstream = downstream;
+            this.sent = Counter.builder("hedge.sent").tag("downstream", downstream).register(meterRegistry);
+            this.primaryWins = Counter.builder("hedge.wins")
+                    .tag("downstream", downstream)
+                    .tag("result", PRIMARY)
+                    .register(meterRegistry);
+            this.hedgeWins = Counter.builder("hedge.wins")
+                    .tag("downstream", downstream)
+                    .tag("result", HEDGE)
+                    .register(meterRegistry);
+        }
+
+        Duration hedgeDelay() {
+            var observed = latencies.percentile();
+            if (observed == null || observed.compareTo(maxDelay) > 0) {
+                return maxDelay;
+            }
+            return observed.compareTo(minDelay) < 0 ? minDelay : observed;
+        }
+
+        <T> Flux<T> hedge(Flux<T> call) {
+            return Flux.defer(() -> {
+                budget.recordRequest();
+                var start = System.nanoTime();
+                var sampled = new AtomicBoolean();
+                var hedgeSent = new AtomicBoolean();
+                var winner = new AtomicReference<String>();
+
+                // a primary cancelled because the hedge won still yields a lower bound for its latency
+                Runnable sample = () -> {
+                    if (sampled.compareAndSet(false, true)) {
+                        latencies.record(System.nanoTime() - start);
+                    }
+                };
+                var primary = call
+                        .doOnEach(signal -> {
+                            sample.run();
+                            winner.compareAndSet(null, PRIMARY);
+                        })
+                        .doOnCancel(sample);
+                var hedged = Mono.delay(hedgeDelay())
+                        .flatMapMany(tick -> {
+                            if (!budget.tryAcquireRetry()) {
+                                return Flux.<T>never();
+                            }
+                            log.debug("Hedging call to {} after {}", downstream, hedgeDelay());
+                            hedgeSent.set(true);
+                            sent.increment();
+                            return call.doOnEach(signal -> winner.compareAndSet(null, HEDGE));
+                        });
+
+                return Flux.firstWithSignal(primary, hedged)
+                        .doFinally(signalType -> {
+                            if (hedgeSent.get() && winner.get() != null) {
+                                (HEDGE.equals(winner.get()) ? hedgeWins : primaryWins).increment();
+                            }
+                        });
+            });
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.reactivespring.util;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Sliding window over the last {@code size} observed latencies. The requested percentile is recomputed every
+ * {@code size / 10} samples rather than on every read, so reads on the request path are a volatile load.
+ */
+class LatencyWindow {
+
+    private final long[] samples;
+    private final double percentile;
+    private final int recomputeEvery;
+    private long count;
+    private volatile Duration percentileValue;
+
+    LatencyWindow(int size, double percentile) {
+        this.samples = new long[size];
+        this.percentile = percentile;
+        this.recomputeEvery = Math.max(1, size / 10);
+    }
+
+    synchronized void record(long latencyNanos) {
+        samples[(int) (count % samples.length)] = latencyNanos;
+        count++;
+        if (count % recomputeEvery == 0) {
+            var filled = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+            Arrays.sort(filled);
+            var index = (int) Math.ceil(percentile * filled.length) - 1;
+            percentileValue = Duration.ofNanos(filled[Math.max(0, index)]);
+        }
+    }
+
+    /**
+     * The latency percentile over the window, or {@code null} until enough samples have been recorded.
+     */
+    Duration percentile() {
+        return percentileValue;
+    }
+}
@@ -0,0 +1,81 @@
+package com.reactivespring.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived, bounded record of keys the downstream reported as missing, so repeated lookups for unknown
+ * keys can be answered locally. Entries expire after {@code ttl} or when {@link #invalidate} is called
+ * because the key has started to exist. A lookup that was already running when its key was invalidated can report
+ * the key missing afterwards; it passes the {@link #version()} from before it started, and such a late report is
+ * ignored.
+ */
+public class NegativeCache<K> {
+
+    private final Cache<K, Boolean> missingKeys;
+    // the version of the last invalidation per key, kept as long as the mark it may have to reject
+    private final Cache<K, Long> invalidations;
+    private final AtomicLong versions = new AtomicLong();
+    // the version of the last invalidateAll, which rejects the marks of every lookup started before it
+    private long invalidatedAll;
+
+    public NegativeCache(String name, long maximumSize, Duration ttl, MeterRegistry meterRegistry) {
+        this(name, maximumSize, ttl, meterRegistry, Ticker.systemTicker());
+    }
+
+    NegativeCache(String name, long maximumSize, Duration ttl, MeterRegistry meterRegistry, Ticker ticker) {
+        this.missingKeys = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.invalidations = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, missingKeys, name);
+    }
+
+    /**
+     * The current version, to be taken before a lookup whose result is passed to {@link #markMissing(Object, long)}.
+     */
+    public long version() {
+        return versions.get();
+    }
+
+    public boolean isMissing(K key) {
+        return missingKeys.getIfPresent(key) != null;
+    }
+
+    public void markMissing(K key) {
+        markMissing(key, version());
+    }
+
+    /**
+     * Marks the key missing unless it was invalidated after {@code version}, i.e. while the lookup was running.
+     */
+    public synchronized void markMissing(K key, long version) {
+        var invalidated = invalidations.getIfPresent(key);
+        if (invalidatedAll <= version && (invalidated == null || invalidated <= version)) {
+            missingKeys.put(key, Boolean.TRUE);
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        invalidations.put(key, versions.incrementAndGet());
+        missingKeys.invalidate(key);
+    }
+
+    public synchronized void invalidateAll() {
+        invalidatedAll = versions.incrementAndGet();
+        missingKeys.invalidateAll();
+    }
+}
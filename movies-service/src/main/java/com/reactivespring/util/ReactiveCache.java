@@ -0,0 +1,65 @@
+package com.reactivespring.util;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Bounded, size-evicting async cache in front of a reactive loader. Entries older than {@code ttl} are still
+ * served for up to {@code staleWhileRevalidate} while a background reload replaces them; a failed reload keeps
+ * the stale value. Failed or empty loads are not cached. Hit, miss, eviction and size meters are registered
+ * under {@code cache.*} with {@code cache=name}.
+ */
+public class ReactiveCache<K, V> {
+
+    private final AsyncLoadingCache<K, V> cache;
+
+    public ReactiveCache(String name, Function<K, Mono<V>> loader, long maximumSize, Duration ttl,
+                         Duration staleWhileRevalidate, MeterRegistry meterRegistry) {
+        this(name, loader, maximumSize, ttl, staleWhileRevalidate, meterRegistry,
+                Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    ReactiveCache(String name, Function<K, Mono<V>> loader, long maximumSize, Duration ttl,
+                  Duration staleWhileRevalidate, MeterRegistry meterRegistry, Ticker ticker, Executor executor) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(ttl)
+                .expireAfterWrite(ttl.plus(staleWhileRevalidate))
+                .ticker(ticker)
+                .executor(executor)
+                .recordStats()
+                .buildAsync((key, ignored) -> loader.apply(key).toFuture());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+
+    public Mono<V> get(K key) {
+        // copy() so that one cancelled caller does not cancel the load shared with every other caller
+        return Mono.fromFuture(cache.get(key).copy());
+    }
+
+    public void put(K key, V value) {
+        cache.put(key, CompletableFuture.completedFuture(value));
+    }
+
+    public void invalidate(K key) {
+        cache.synchronous().invalidate(key);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    long estimatedSize() {
+        return cache.synchronous().estimatedSize();
+    }
+}
@@ -0,0 +1,86 @@
+package com.reactivespring.util;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Collects single-key lookups that arrive within a short window (or until {@code maxBatchSize} keys are
+ * pending) and resolves them with one call to the batch loader. Keys missing from the batch result
+ * resolve to {@code missingValue}, which may complete empty or with an error.
+ */
+@Slf4j
+public class RequestCoalescer<K, V> {
+
+    private final Sinks.Many<PendingLookup<K, V>> pendingLookups = Sinks.many().unicast().onBackpressureBuffer();
+    private final Function<List<K>, Mono<Map<K, V>>> batchLoader;
+    private final Function<K, Mono<V>> missingValue;
+
+    public RequestCoalescer(Function<List<K>, Mono<Map<K, V>>> batchLoader,
+                            Function<K, Mono<V>> missingValue,
+                            int maxBatchSize,
+                            Duration window) {
+        this.batchLoader = batchLoader;
+        this.missingValue = missingValue;
+        pendingLookups.asFlux()
+                .bufferTimeout(maxBatchSize, window)
+                .onBackpressureBuffer()
+                .flatMap(this::dispatch)
+                .subscribe();
+    }
+
+    public Mono<V> load(K key) {
+        return Mono.defer(() -> {
+            var lookup = new PendingLookup<K, V>(key, Sinks.one());
+            // callers arrive on many event-loop threads; spin on concurrent emissions instead of failing them
+            pendingLookups.emitNext(lookup,
+                    (signalType, emitResult) -> emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+            return lookup.result.asMono();
+        });
+    }
+
+    private Mono<Void> dispatch(List<PendingLookup<K, V>> batch) {
+        var keys = batch.stream()
+                .map(PendingLookup::getKey)
+                .distinct()
+                .collect(Collectors.toList());
+        log.debug("Coalesced {} lookups into one batch of {} keys", batch.size(), keys.size());
+
+        return batchLoader.apply(keys)
+                .defaultIfEmpty(Map.of())
+                .doOnNext(values -> batch.forEach(lookup -> lookup.complete(values, missingValue)))
+                .doOnError(ex -> batch.forEach(lookup -> lookup.result.tryEmitError(ex)))
+                .onErrorResume(ex -> Mono.empty())
+                .then();
+    }
+
+    private static class PendingLookup<K, V> {
+        private final K key;
+        private final Sinks.One<V> result;
+
+        PendingLookup(K key, Sinks.One<V> result) {
+            this.key = key;
+            this.result = result;
+        }
+
+        K getKey() {
+            return key;
+        }
+
+        void complete(Map<K, V> values, Function<K, Mono<V>> missingValue) {
+            var value = values.get(key);
+            if (value != null) {
+                result.tryEmitValue(value);
+                return;
+            }
+            missingValue.apply(key)
+                    .subscribe(result::tryEmitValue, result::tryEmitError, result::tryEmitEmpty);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.reactivespring.util;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Guards single attempts against a downstream with that downstream's circuit breaker and
+ * {@link AdaptiveConcurrencyLimiter}. While the breaker is open, or the limit is reached, attempts fail immediately
+ * with {@code CallNotPermittedException} or {@code ConcurrencyLimitExceededException}; neither is retried.
+ */
+@Component
+public class ResiliencePolicy {
+
+    @Value("${restClient.circuitBreaker.enabled:true}")
+    private boolean circuitBreakerEnabled;
+
+    @Value("${restClient.concurrencyLimit.enabled:true}")
+    private boolean concurrencyLimitEnabled;
+
+    @Value("${restClient.concurrencyLimit.initialLimit:20}")
+    private int initialLimit;
+
+    @Value("${restClient.concurrencyLimit.minLimit:2}")
+    private int minLimit;
+
+    @Value("${restClient.concurrencyLimit.maxLimit:200}")
+    private int maxLimit;
+
+    @Value("${restClient.concurrencyLimit.latencyThreshold:1s}")
+    private Duration latencyThreshold;
+
+    @Value("${restClient.concurrencyLimit.backoffRatio:0.9}")
+    private double backoffRatio;
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public ResiliencePolicy(CircuitBreakerRegistry circuitBreakerRegistry, MeterRegistry meterRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Mono<T> protect(String downstream, Mono<T> attempt) {
+        var limited = concurrencyLimitEnabled ? limiter(downstream).limit(attempt) : attempt;
+        return circuitBreakerEnabled
+                ? limited.transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(downstream)))
+                : limited;
+    }
+
+    public <T> Flux<T> protect(String downstream, Flux<T> attempt) {
+        var limited = concurrencyLimitEnabled ? limiter(downstream).limit(attempt) : attempt;
+        return circuitBreakerEnabled
+                ? limited.transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(downstream)))
+                : limited;
+    }
+
+    /**
+     * Guards only the opening of a long-lived stream: the breaker and the limiter decide whether it may start and
+     * record how long the first signal took, and the rest of the stream runs unguarded. Guarding the whole stream
+     * would count every stream outliving the slow-call threshold as slow and hold a limiter slot for its lifetime.
+     */
+    public <T> Flux<T> protectOpening(String downstream, Flux<T> stream) {
+        var limited = concurrencyLimitEnabled ? limiter(downstream).limitOpening(stream) : stream;
+        return circuitBreakerEnabled ? breakOpening(circuitBreakerRegistry.circuitBreaker(downstream), limited) : limited;
+    }
+
+    private static <T> Flux<T> breakOpening(CircuitBreaker circuitBreaker, Flux<T> stream) {
+        return Flux.defer(() -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                return Flux.error(CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+            }
+            var start = circuitBreaker.getCurrentTimestamp();
+            var opened = new AtomicBoolean();
+            return stream
+                    .doOnEach(signal -> {
+                        if (signal.isOnSubscribe() || !opened.compareAndSet(false, true)) {
+                            return;
+                        }
+                        var duration = circuitBreaker.getCurrentTimestamp() - start;
+                        if (signal.isOnError()) {
+                            circuitBreaker.onError(duration, circuitBreaker.getTimestampUnit(), signal.getThrowable());
+                        } else {
+                            circuitBreaker.onSuccess(duration, circuitBreaker.getTimestampUnit());
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (opened.compareAndSet(false, true)) {
+                            circuitBreaker.releasePermission();
+                        }
+                    });
+        });
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(String downstream) {
+        return limiters.computeIfAbsent(downstream, name -> new AdaptiveConcurrencyLimiter(name, initialLimit,
+                minLimit, maxLimit, latencyThreshold, backoffRatio, RetryPolicy::isTransient, meterRegistry));
+    }
+}
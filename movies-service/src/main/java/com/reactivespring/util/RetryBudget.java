@@ -0,0 +1,44 @@
+package com.reactivespring.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket that caps retries at a percentage of live traffic: every first attempt deposits
+ * {@code percent / 100} of a token (up to {@code maxTokens}) and every retry withdraws a whole token. The
+ * bucket starts full so that a quiet service can still ride out a short blip.
+ */
+public class RetryBudget {
+
+    // tokens are tracked in thousandths so that deposits of a fraction of a token stay lock-free
+    private static final long SCALE = 1000;
+
+    private final long depositPerRequest;
+    private final long maxTokens;
+    private final AtomicLong tokens;
+
+    public RetryBudget(double percent, double maxTokens) {
+        this.depositPerRequest = Math.round(percent / 100 * SCALE);
+        this.maxTokens = Math.round(maxTokens * SCALE);
+        this.tokens = new AtomicLong(this.maxTokens);
+    }
+
+    public void recordRequest() {
+        tokens.accumulateAndGet(depositPerRequest, (current, deposit) -> Math.min(maxTokens, current + deposit));
+    }
+
+    public boolean tryAcquireRetry() {
+        while (true) {
+            var current = tokens.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    public double availableTokens() {
+        return (double) tokens.get() / SCALE;
+    }
+}
@@ -0,0 +1,122 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.exception.ReviewsServerException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Shared retry policy for the downstream WebClients: every attempt is bounded by {@code perAttemptTimeout},
+ * transient failures (5xx, timeouts, connection errors) are retried up to {@code maxRetries} times (so a call is
+ * attempted at most {@code maxRetries + 1} times) with jittered exponential backoff, and every retry must be paid
+ * for from one process-wide {@link RetryBudget} so that a degraded downstream sees at most {@code budget.percent}
+ * extra load instead of a lockstep multiple.
+ * Client errors such as 404 are never retried.
+ */
+@Component
+@Slf4j
+public class RetryPolicy {
+
+    private final long maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final double jitter;
+    private final Duration perAttemptTimeout;
+    private final RetryBudget budget;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Retry> retrySpecs = new ConcurrentHashMap<>();
+
+    public RetryPolicy(@Value("${restClient.retry.maxRetries:3}") long maxRetries,
+                       @Value("${restClient.retry.minBackoff:200ms}") Duration minBackoff,
+                       @Value("${restClient.retry.maxBackoff:2s}") Duration maxBackoff,
+                       @Value("${restClient.retry.jitter:0.5}") double jitter,
+                       @Value("${restClient.retry.perAttemptTimeout:3s}") Duration perAttemptTimeout,
+                       @Value("${restClient.retry.budget.percent:20}") double budgetPercent,
+                       @Value("${restClient.retry.budget.maxTokens:10}") double budgetMaxTokens,
+                       MeterRegistry meterRegistry) {
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.jitter = jitter;
+        this.perAttemptTimeout = perAttemptTimeout;
+        this.budget = new RetryBudget(budgetPercent, budgetMaxTokens);
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("retry.budget.tokens", budget, RetryBudget::availableTokens)
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> apply(String downstream, Mono<T> call) {
+        return apply(downstream, call, UnaryOperator.identity());
+    }
+
+    /**
+     * Like {@link #apply(String, Mono)}, with {@code attemptGuard} wrapped around every single attempt including
+     * its timeout, so that a guard such as a circuit breaker observes timeouts as failures.
+     */
+    public <T> Mono<T> apply(String downstream, Mono<T> call, UnaryOperator<Mono<T>> attemptGuard) {
+        return attemptGuard.apply(call.timeout(perAttemptTimeout))
+                .retryWhen(retrySpecs.computeIfAbsent(downstream, this::retrySpec))
+                .doOnSubscribe(subscription -> budget.recordRequest());
+    }
+
+    public <T> Flux<T> apply(String downstream, Flux<T> call) {
+        return apply(downstream, call, UnaryOperator.identity());
+    }
+
+    public <T> Flux<T> apply(String downstream, Flux<T> call, UnaryOperator<Flux<T>> attemptGuard) {
+        return attemptGuard.apply(call.timeout(perAttemptTimeout))
+                .retryWhen(retrySpecs.computeIfAbsent(downstream, this::retrySpec))
+                .doOnSubscribe(subscription -> budget.recordRequest());
+    }
+
+    private Retry retrySpec(String downstream) {
+        var attempted = Counter.builder("retry.attempts").tag("downstream", downstream).register(meterRegistry);
+        var denied = Counter.builder("retry.denied").tag("downstream", downstream).register(meterRegistry);
+
+        return Retry.from(retrySignals -> retrySignals.concatMap(retrySignal -> {
+            var failure = retrySignal.failure();
+            if (!isTransient(failure) || retrySignal.totalRetries() >= maxRetries) {
+                return Mono.error(failure);
+            }
+            if (!budget.tryAcquireRetry()) {
+                log.warn("Retry budget exhausted, not retrying call to {}: {}", downstream, failure.getMessage());
+                denied.increment();
+                return Mono.error(failure);
+            }
+            attempted.increment();
+            return Mono.delay(backoff(retrySignal.totalRetries()));
+        }));
+    }
+
+    Duration backoff(long retry) {
+        var exponential = minBackoff.multipliedBy(1L << Math.min(retry, 30));
+        var capped = exponential.compareTo(maxBackoff) > 0 ? maxBackoff : exponential;
+        var jitterMillis = (long) (capped.toMillis() * jitter * ThreadLocalRandom.current().nextDouble());
+        return capped.minusMillis(jitterMillis);
+    }
+
+    /**
+     * Failures that say something about the health of the downstream: server errors, timeouts and connection errors.
+     */
+    public static boolean isTransient(Throwable ex) {
+        return ex instanceof MoviesInfoServerException
+                || ex instanceof ReviewsServerException
+                || ex instanceof TimeoutException
+                || ex instanceof WebClientRequestException;
+    }
+}
@@ -0,0 +1,59 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Shares one in-flight downstream call between all concurrent callers asking for the same key. The entry is
+ * dropped as soon as the call terminates, so results are never served after completion and failures are not
+ * remembered. The call is reference counted: it is cancelled once every caller has cancelled.
+ * {@code singleflight.calls} counts leaders (result=miss) and callers that joined an in-flight call (result=hit).
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("singleflight.calls")
+                .tag("name", name)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("singleflight.calls")
+                .tag("name", name)
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> {
+            var leader = new boolean[1];
+            var flight = inFlight.computeIfAbsent(key, k -> {
+                leader[0] = true;
+                var registered = new AtomicReference<Mono<V>>();
+                // only this flight, a newer one for the same key may have been registered by the time it ends
+                var shared = call.get()
+                        .doFinally(signalType -> inFlight.remove(k, registered.get()))
+                        .flux()
+                        .publish()
+                        .refCount()
+                        .next();
+                registered.set(shared);
+                return shared;
+            });
+            (leader[0] ? misses : hits).increment();
+            return flight;
+        });
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -1,7 +1,19 @@
 package com.reactivespring.controller;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.reactivespring.ReviewsRestClient;
+import com.reactivespring.client.MoviesInfoRestClient;
 import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -9,19 +21,34 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -29,7 +56,13 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 @AutoConfigureWireMock(port = 8084)
 @TestPropertySource(properties = {
         "restClient.moviesInfoUrl = http://localhost:8084/v1/movieinfos",
-        "restClient.reviewsUrl = http://localhost:8084/v1/reviews"
+        "restClient.reviewsUrl = http://localhost:8084/v1/reviews",
+        "restClient.cache.enabled = false",
+        "restClient.negativeCache.enabled = false",
+        "restClient.retry.budget.maxTokens = 1000",
+        "restClient.concurrencyLimit.initialLimit = 5",
+        "restClient.concurrencyLimit.minLimit = 5",
+        "restClient.concurrencyLimit.maxLimit = 5"
 })
 class MoviesControllerIntgTest {
 
@@ -38,6 +71,21 @@ class MoviesControllerIntgTest {
     @Autowired
     WebTestClient webTestClient;
 
+    @Autowired
+    MoviesInfoRestClient moviesInfoRestClient;
+
+    @Autowired
+    ReviewsRestClient reviewsRestClient;
+
+    @Autowired
+    CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    MoviesController moviesController;
+
     @BeforeAll
     static void beforeAll() {
         System.setProperty("os.arch", "x86_64");
@@ -46,6 +94,7 @@ class MoviesControllerIntgTest {
     @AfterEach
     void afterEach() {
         WireMock.reset();
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(CircuitBreaker::reset);
     }
 
     @Test
@@ -174,7 +223,7 @@ class MoviesControllerIntgTest {
                         .withHeader("Content-Type", "application/json")
                         .withBodyFile("movieinfo.json")));
 
-        stubFor(get(urlEqualTo("/v1/reviews/"))
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
                 .willReturn(aResponse()
                         .withStatus(500)
                         .withBody("Review service unavailable")));
@@ -184,12 +233,765 @@ class MoviesControllerIntgTest {
                 .get()
                 .uri("/v1/movies/{id}", movieId)
                 .header("Content-Type", "application/json")
+                // enough budget for every retry, so the movie degrades on the server error and not on a timeout
+                .header(MoviesController.LATENCY_BUDGET_HEADER, "5s")
                 .exchange()
                 .expectStatus()
-                .is5xxServerError();
-//                .expectBody(String.class)
-//                .isEqualTo("some error");
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = Objects.requireNonNull(movieEntityExchangeResult.getResponseBody());
+                    assertTrue(movie.isDegraded());
+                    assertNull(movie.getReviewList());
+                });
 
         WireMock.verify(4, getRequestedFor(urlPathMatching("/v1/reviews*")));
     }
-}
\ No newline at end of file
+
+    @Test
+    void retrieveMovieById_concurrentFanOut() {
+        // given
+        var movieId = "abc";
+        var delay = 1500;
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withFixedDelay(delay)
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId))
+                .willReturn(aResponse()
+                        .withFixedDelay(delay)
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        // when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assert Objects.requireNonNull(movie).getReviewList().size() == 2;
+                });
+
+        // then: both requests arrived before either response was sent, so neither call waited for the other
+        var arrivals = WireMock.getAllServeEvents().stream()
+                .map(serveEvent -> serveEvent.getRequest().getLoggedDate().getTime())
+                .collect(Collectors.toList());
+        assertEquals(2, arrivals.size());
+        assertTrue(Math.abs(arrivals.get(0) - arrivals.get(1)) < delay, "arrivals: " + arrivals);
+    }
+
+    @Test
+    void retrieveMovieById_concurrentFanOut_404_cancelsReviews() {
+        // given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withStatus(404)));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId))
+                .willReturn(aResponse()
+                        .withFixedDelay(3000)
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        // when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+
+        // then: the slow reviews call was cancelled rather than awaited
+        assertEquals(0, recordedReviewsCalls());
+    }
+
+    /**
+     * Calls whose outcome the reviews circuit breaker recorded; a cancelled call has none.
+     */
+    private int recordedReviewsCalls() {
+        return circuitBreakerRegistry.circuitBreaker("reviews").getMetrics().getNumberOfBufferedCalls();
+    }
+
+    @Test
+    void retrieveMoviesByIds() {
+        // given
+        stubFor(get(urlEqualTo("/v1/movieinfos?ids=1,2,3"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005},"
+                                + "{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\",\"year\":2008}]")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoIds=1,2,3"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        // when
+        webTestClient
+                .get()
+                .uri(MOVIES_URL + "?ids={ids}", "1,2,3,1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Movie.class)
+                .consumeWith(result -> {
+                    var movies = result.getResponseBody();
+                    // then
+                    assertEquals(2, Objects.requireNonNull(movies).size());
+                    assertEquals("Batman Begins", movies.get(0).getMovieInfo().getName());
+                    assertEquals(2, movies.get(0).getReviewList().size());
+                    assertTrue(movies.get(1).getReviewList().isEmpty());
+                });
+
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/movieinfos?ids=1,2,3")));
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/reviews?movieInfoIds=1,2,3")));
+    }
+
+    @Test
+    void retrieveMoviesByIds_post() {
+        // given
+        stubFor(get(urlEqualTo("/v1/movieinfos?ids=1"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}]")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoIds=1"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        // when
+        webTestClient
+                .post()
+                .uri(MOVIES_URL + "/batch")
+                .bodyValue(List.of("1"))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Movie.class)
+                // then
+                .hasSize(1);
+    }
+
+    @Test
+    void retrieveMovieById_summaryView() {
+        // given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews/summary?movieInfoId=" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"movieInfoId\":1,\"count\":3,\"averageRating\":8.5,"
+                                + "\"histogram\":{\"8\":2,\"9\":1}}")));
+
+        // when
+        webTestClient
+                .get()
+                .uri(MOVIES_URL + "/{id}?view=summary", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(result -> {
+                    var movie = Objects.requireNonNull(result.getResponseBody());
+                    // then
+                    assertNull(movie.getReviewList());
+                    assertEquals(3, movie.getReviewSummary().getCount());
+                    assertEquals(8.5, movie.getReviewSummary().getAverageRating());
+                    assertEquals(2L, movie.getReviewSummary().getHistogram().get(8));
+                });
+
+        WireMock.verify(0, getRequestedFor(urlEqualTo("/v1/reviews?movieInfoId=" + movieId)));
+    }
+
+    @Test
+    void retrieveMoviesByIds_summaryView() {
+        // given
+        stubFor(get(urlEqualTo("/v1/movieinfos?ids=1,2"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005},"
+                                + "{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\",\"year\":2008}]")));
+
+        stubFor(get(urlEqualTo("/v1/reviews/summary?movieInfoIds=1,2"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"movieInfoId\":1,\"count\":2,\"averageRating\":8.5,"
+                                + "\"histogram\":{\"8\":1,\"9\":1}},"
+                                + "{\"movieInfoId\":2,\"count\":0,\"averageRating\":null,\"histogram\":{}}]")));
+
+        // when
+        webTestClient
+                .get()
+                .uri(MOVIES_URL + "?ids={ids}&view=summary", "1,2")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Movie.class)
+                .consumeWith(result -> {
+                    var movies = Objects.requireNonNull(result.getResponseBody());
+                    // then
+                    assertEquals(2, movies.size());
+                    assertEquals(2, movies.get(0).getReviewSummary().getCount());
+                    assertEquals(0, movies.get(1).getReviewSummary().getCount());
+                    assertNull(movies.get(1).getReviewSummary().getAverageRating());
+                });
+    }
+
+    @Test
+    void retrieveMovieInfo_concurrentCallersShareOneRequest() {
+        // given
+        var movieId = "abc";
+        var url = "/v1/movieinfos/" + movieId;
+        stubFor(get(urlEqualTo(url))
+                .willReturn(aResponse()
+                        .withFixedDelay(500)
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        // when
+        var movieInfos = Flux.range(0, 20)
+                .flatMap(i -> moviesInfoRestClient.retrieveMovieInfo(movieId));
+
+        // then
+        StepVerifier.create(movieInfos)
+                .expectNextCount(20)
+                .verifyComplete();
+        WireMock.verify(1, getRequestedFor(urlEqualTo(url)));
+    }
+
+    @Test
+    void retrieveReviews_concurrentCallersShareOneRequest() {
+        // given
+        var movieId = "abc";
+        var url = "/v1/reviews?movieInfoId=" + movieId;
+        stubFor(get(urlEqualTo(url))
+                .willReturn(aResponse()
+                        .withFixedDelay(500)
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        // when
+        var reviews = Flux.range(0, 20)
+                .flatMap(i -> reviewsRestClient.retrieveReviews(movieId));
+
+        // then
+        StepVerifier.create(reviews)
+                .expectNextCount(40)
+                .verifyComplete();
+        WireMock.verify(1, getRequestedFor(urlEqualTo(url)));
+    }
+
+    @Test
+    void retrieveMovieById_reviews_404_notRetried() {
+        // given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId))
+                .willReturn(aResponse()
+                        .withStatus(404)));
+
+        // when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // then
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/reviews?movieInfoId=" + movieId)));
+    }
+
+    @Test
+    void retrieveMovieInfo_connectionResets_opensCircuitBreaker() {
+        // given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+        // when
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(moviesInfoRestClient.retrieveMovieInfo(movieId))
+                    .expectError()
+                    .verify();
+        }
+
+        // then
+        var requests = WireMock.findAll(getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId))).size();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreakerRegistry.circuitBreaker("moviesInfo").getState());
+        StepVerifier.create(moviesInfoRestClient.retrieveMovieInfo(movieId))
+                .expectError(CallNotPermittedException.class)
+                .verify();
+        WireMock.verify(requests, getRequestedFor(urlEqualTo("/v1/movieinfos/" + movieId)));
+    }
+
+    @Test
+    void retrieveMovieInfo_slowDownstream_excessCallsFailFast() {
+        // given
+        stubFor(get(urlPathMatching("/v1/movieinfos/.*"))
+                .willReturn(aResponse()
+                        .withFixedDelay(500)
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        // when
+        var results = Flux.range(0, 20)
+                .flatMap(i -> moviesInfoRestClient.retrieveMovieInfo("id" + i)
+                        .map(movieInfo -> "ok")
+                        .onErrorResume(ConcurrencyLimitExceededException.class, ex -> Mono.just("rejected")), 20)
+                .collectList()
+                .block();
+
+        // then
+        assertEquals(5, results.stream().filter("ok"::equals).count());
+        assertEquals(15, results.stream().filter("rejected"::equals).count());
+        WireMock.verify(5, getRequestedFor(urlPathMatching("/v1/movieinfos/.*")));
+    }
+
+    @Test
+    void retrieveMovieById_slowReviews_degradedWithinLatencyBudget() {
+        // given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId))
+                .willReturn(aResponse()
+                        .withFixedDelay(1500)
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        // when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .header(MoviesController.LATENCY_BUDGET_HEADER, "300ms")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = Objects.requireNonNull(movieEntityExchangeResult.getResponseBody());
+                    assertTrue(movie.isDegraded());
+                    assertNull(movie.getReviewList());
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                });
+
+        // then: the slow reviews call was cancelled when the budget ran out
+        assertEquals(0, recordedReviewsCalls());
+    }
+
+    @Test
+    void retrieveMovieById_poolGaugesPerDownstream() {
+        // given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        // when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // then
+        for (var pool : List.of("moviesInfo", "reviews")) {
+            for (var gauge : List.of("active", "idle", "pending")) {
+                assertNotNull(meterRegistry.find("reactor.netty.connection.provider." + gauge + ".connections")
+                        .tag("name", pool)
+                        .gauge(), pool + " " + gauge);
+            }
+        }
+    }
+
+    @Test
+    void retrieveMovieById_smileFromBackends_jsonToClient() throws Exception {
+        // given
+        var movieId = "abc";
+        var smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+        var movieInfo = new MovieInfo(movieId, "Batman Begins", 2005, List.of("Christian Bale"),
+                LocalDate.parse("2005-06-15"));
+        var reviews = List.of(new Review("1", 1L, "Awesome Movie", 9.0), new Review("2", 1L, "Excellent Movie", 8.0));
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .withHeader("Accept", containing("application/x-jackson-smile"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/x-jackson-smile")
+                        .withBody(smileMapper.writeValueAsBytes(movieInfo))));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId))
+                .withHeader("Accept", containing("application/x-jackson-smile"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/x-jackson-smile")
+                        .withBody(smileMapper.writeValueAsBytes(reviews))));
+
+        // when
+        webTestClient
+                .get()
+                .uri("/v1/movies/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    // then
+                    assertEquals(movieInfo, Objects.requireNonNull(movie).getMovieInfo());
+                    assertEquals(reviews, movie.getReviewList());
+                });
+    }
+
+    @Test
+    void retrieveMovieInfos_stream_passthroughRelaysUpstreamBytes() {
+        // given
+        var ndjson = "{\"name\": \"Batman Begins\", \"movieInfoId\": \"abc\"}\n"
+                + "{\"name\": \"The Dark Knight\", \"movieInfoId\": \"def\"}\n";
+        stubFor(get(urlEqualTo("/v1/movieinfos/stream"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/x-ndjson")
+                        .withBody(ndjson)));
+
+        // when
+        var body = webTestClient
+                .get()
+                .uri(MOVIES_URL + "/stream")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        // then
+        assertEquals(ndjson, body);
+    }
+
+    @Test
+    void retrieveMovieInfos_stream_sameEventsWithAndWithoutPassthrough() {
+        // given
+        var ndjson = "{\"sequence\": 1, \"operation\": \"insert\", \"movieInfoId\": \"abc\", "
+                + "\"name\": \"Batman Begins\"}\n"
+                + "{\"sequence\": 2, \"operation\": \"delete\", \"movieInfoId\": \"abc\"}\n";
+        stubFor(get(urlEqualTo("/v1/movieinfos/stream"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/x-ndjson")
+                        .withBody(ndjson)));
+        var batmanBegins = new MovieInfo("abc", "Batman Begins", null, null, null);
+        var expected = List.of(new MovieInfoEvent(1, "insert", batmanBegins),
+                new MovieInfoEvent(2, MovieInfoEvent.DELETE, new MovieInfo("abc", null, null, null, null)));
+
+        for (var passthrough : List.of(true, false)) {
+            ReflectionTestUtils.setField(moviesController, "streamPassthrough", passthrough);
+            try {
+                // when
+                var events = webTestClient
+                        .get()
+                        .uri(MOVIES_URL + "/stream")
+                        .exchange()
+                        .expectStatus()
+                        .isOk()
+                        .expectHeader()
+                        .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                        .returnResult(MovieInfoEvent.class)
+                        .getResponseBody();
+
+                // then
+                StepVerifier.create(events.collectList())
+                        .expectNext(expected)
+                        .verifyComplete();
+            } finally {
+                ReflectionTestUtils.setField(moviesController, "streamPassthrough", true);
+            }
+        }
+    }
+
+    @Test
+    void retrieveMovieFeed() {
+        // given
+        var ndjson = "{\"movieInfoId\": \"abc\", \"name\": \"Batman Begins\"}\n"
+                + "{\"movieInfoId\": \"def\", \"name\": \"The Dark Knight\"}\n";
+        stubFor(get(urlEqualTo("/v1/movieinfos/stream"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/x-ndjson")
+                        .withBody(ndjson)));
+
+        for (var movieId : List.of("abc", "def")) {
+            stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId))
+                    .willReturn(aResponse()
+                            .withHeader("Content-Type", "application/json")
+                            .withBodyFile("reviews.json")));
+        }
+
+        // when
+        var movies = webTestClient
+                .get()
+                .uri(MOVIES_URL + "/feed")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Movie.class)
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(movies.map(movie -> movie.getMovieInfo().getMovieInfoId()
+                        + ":" + movie.getReviewList().size()).sort())
+                .expectNext("abc:2", "def:2")
+                .verifyComplete();
+    }
+
+    @Test
+    void streamMovieById() {
+        // given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        // when
+        var lines = webTestClient
+                .get()
+                .uri(MOVIES_URL + "/{id}", movieId)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(String.class)
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(lines)
+                .expectNextMatches(line -> line.contains("\"name\":\"Batman Begins\""))
+                .expectNextMatches(line -> line.contains("\"comment\":\"Awesome Movie\""))
+                .expectNextMatches(line -> line.contains("\"comment\":\"Excellent Movie\""))
+                .verifyComplete();
+    }
+
+    @Test
+    void streamMovieById_limit() {
+        // given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        // when
+        var lines = webTestClient
+                .get()
+                .uri(MOVIES_URL + "/{id}?limit=1", movieId)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(String.class)
+                .getResponseBody();
+
+        // then
+        StepVerifier.create(lines)
+                .expectNextMatches(line -> line.contains("\"name\":\"Batman Begins\""))
+                .expectNextMatches(line -> line.contains("\"comment\":\"Awesome Movie\""))
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveMovieById_reviewsFollowNextCursor() {
+        // given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader(ReviewsRestClient.NEXT_CURSOR_HEADER, "page2")
+                        .withBodyFile("reviews.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId + "&after=page2"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"reviewId\":\"3\",\"movieInfoId\":1,\"comment\":\"Good Movie\",\"rating\":7.0}]")));
+
+        // when
+        webTestClient
+                .get()
+                .uri(MOVIES_URL + "/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(result -> {
+                    var movie = Objects.requireNonNull(result.getResponseBody());
+                    // then
+                    assertEquals(3, movie.getReviewList().size());
+                    assertEquals("Good Movie", movie.getReviewList().get(2).getComment());
+                });
+    }
+
+    @Test
+    void retrieveMovieById_failedReviewPageRetriedAlone() {
+        // given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withHeader(ReviewsRestClient.NEXT_CURSOR_HEADER, "page2")
+                        .withBodyFile("reviews.json")));
+
+        var page2 = "/v1/reviews?movieInfoId=" + movieId + "&after=page2";
+        stubFor(get(urlEqualTo(page2))
+                .inScenario("page2")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                        .withStatus(500)
+                        .withBody("Review service unavailable"))
+                .willSetStateTo("recovered"));
+        stubFor(get(urlEqualTo(page2))
+                .inScenario("page2")
+                .whenScenarioStateIs("recovered")
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("[{\"reviewId\":\"3\",\"movieInfoId\":1,\"comment\":\"Good Movie\",\"rating\":7.0}]")));
+
+        // when
+        webTestClient
+                .get()
+                .uri(MOVIES_URL + "/{id}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(result -> {
+                    var movie = Objects.requireNonNull(result.getResponseBody());
+                    // then
+                    assertEquals(3, movie.getReviewList().size());
+                });
+        WireMock.verify(1, getRequestedFor(urlEqualTo("/v1/reviews?movieInfoId=" + movieId)));
+        WireMock.verify(2, getRequestedFor(urlEqualTo(page2)));
+    }
+
+    @Test
+    void streamMovieById_limit_stopsFollowingPages() {
+        // given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        for (var page = 1; page <= 3; page++) {
+            var query = page == 1 ? "" : "&after=page" + page;
+            stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId + query))
+                    .willReturn(aResponse()
+                            .withHeader("Content-Type", "application/json")
+                            .withHeader(ReviewsRestClient.NEXT_CURSOR_HEADER, "page" + (page + 1))
+                            .withBodyFile("reviews.json")));
+        }
+
+        // when
+        webTestClient
+                .get()
+                .uri(MOVIES_URL + "/{id}?limit=1", movieId)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(String.class)
+                .getResponseBody()
+                .as(StepVerifier::create)
+                .expectNextCount(2)
+                .verifyComplete();
+
+        // then
+        // at most one page is fetched ahead of the consumer
+        WireMock.verify(0, getRequestedFor(urlEqualTo("/v1/reviews?movieInfoId=" + movieId + "&after=page3")));
+    }
+
+    @Test
+    void streamReviews_openCircuitBreakerFailsFast() {
+        // given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/reviews?movieInfoId=" + movieId))
+                .willReturn(aResponse()
+                        .withFault(Fault.CONNECTION_RESET_BY_PEER)));
+        circuitBreakerRegistry.circuitBreaker("reviews").transitionToOpenState();
+
+        // when
+        var reviews = reviewsRestClient.streamReviews(movieId);
+
+        // then
+        StepVerifier.create(reviews)
+                .expectError(CallNotPermittedException.class)
+                .verify();
+        WireMock.verify(0, getRequestedFor(urlEqualTo("/v1/reviews?movieInfoId=" + movieId)));
+    }
+
+    @Test
+    void streamMovieById_404() {
+        // given
+        var movieId = "abc";
+        stubFor(get(urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(aResponse()
+                        .withStatus(404)));
+
+        // when
+        webTestClient
+                .get()
+                .uri(MOVIES_URL + "/{id}", movieId)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                // then
+                .expectStatus()
+                .isNotFound();
+    }
+}
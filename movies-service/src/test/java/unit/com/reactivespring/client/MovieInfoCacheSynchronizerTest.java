@@ -0,0 +1,93 @@
+package com.reactivespring.client;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.exception.MoviesInfoServerException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MovieInfoCacheSynchronizerTest {
+
+    @Mock
+    private MoviesInfoRestClient moviesInfoRestClient;
+
+    private MovieInfoCacheSynchronizer synchronizer;
+
+    @AfterEach
+    void tearDown() {
+        synchronizer.stop();
+    }
+
+    @Test
+    void start_refreshesCacheAndResumesAfterReconnect() {
+        // given
+        var batmanBegins = new MovieInfoEvent(1, "insert", new MovieInfo("1", "Batman Begins", 2005,
+                List.of("Christian Bale"), LocalDate.parse("2005-06-15")));
+        var darkKnight = new MovieInfoEvent(2, "insert", new MovieInfo("2", "The Dark Knight", 2008,
+                List.of("Christian Bale"), LocalDate.parse("2008-07-18")));
+        var connections = new AtomicInteger();
+        var resumedAfter = new CopyOnWriteArrayList<Long>();
+        when(moviesInfoRestClient.retrieveMovieInfoEvents(nullable(Long.class))).thenAnswer(invocation -> {
+            resumedAfter.add(invocation.getArgument(0));
+            switch (connections.incrementAndGet()) {
+                case 1:
+                    return Flux.error(new MoviesInfoServerException("unavailable"));
+                case 2:
+                    return Flux.just(batmanBegins);
+                default:
+                    return Flux.concat(Flux.just(darkKnight), Flux.never());
+            }
+        });
+        synchronizer = new MovieInfoCacheSynchronizer(moviesInfoRestClient,
+                Duration.ofMillis(10), Duration.ofMillis(50));
+
+        // when
+        synchronizer.start();
+
+        // then
+        verify(moviesInfoRestClient, timeout(2000)).refreshCachedMovieInfo(batmanBegins);
+        verify(moviesInfoRestClient, timeout(2000)).refreshCachedMovieInfo(darkKnight);
+        assertEquals(Arrays.asList(null, null, 1L), resumedAfter.subList(0, 3));
+        verify(moviesInfoRestClient, never()).invalidateCachedMovieInfos();
+    }
+
+    @Test
+    void start_invalidatesCacheWhenResumeSkipsEvents() {
+        // given
+        var batmanBegins = new MovieInfoEvent(1, "insert", new MovieInfo("1", "Batman Begins", 2005,
+                List.of("Christian Bale"), LocalDate.parse("2005-06-15")));
+        var darkKnightRises = new MovieInfoEvent(5, "insert", new MovieInfo("3", "The Dark Knight Rises", 2012,
+                List.of("Christian Bale"), LocalDate.parse("2012-07-20")));
+        when(moviesInfoRestClient.retrieveMovieInfoEvents(null)).thenReturn(Flux.just(batmanBegins));
+        when(moviesInfoRestClient.retrieveMovieInfoEvents(1L))
+                .thenReturn(Flux.concat(Flux.just(darkKnightRises), Flux.never()));
+        synchronizer = new MovieInfoCacheSynchronizer(moviesInfoRestClient,
+                Duration.ofMillis(10), Duration.ofMillis(50));
+
+        // when
+        synchronizer.start();
+
+        // then
+        verify(moviesInfoRestClient, timeout(2000)).refreshCachedMovieInfo(darkKnightRises);
+        verify(moviesInfoRestClient).invalidateCachedMovieInfos();
+    }
+}
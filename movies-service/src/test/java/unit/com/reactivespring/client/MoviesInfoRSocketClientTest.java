@@ -0,0 +1,232 @@
+package com.reactivespring.client;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.util.HedgingPolicy;
+import com.reactivespring.util.ResiliencePolicy;
+import com.reactivespring.util.RetryPolicy;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.exceptions.InvalidException;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.stereotype.Controller;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MoviesInfoRSocketClientTest {
+
+    private final RSocketStrategies strategies = RSocketStrategies.builder()
+            .encoder(new Jackson2JsonEncoder())
+            .decoder(new Jackson2JsonDecoder())
+            .build();
+    private final MovieInfoRoutes routes = new MovieInfoRoutes();
+    private CloseableChannel server;
+    private MoviesInfoRSocketClient client;
+
+    @BeforeEach
+    void setUp() {
+        var handler = new RSocketMessageHandler();
+        handler.setRSocketStrategies(strategies);
+        handler.setHandlers(List.of(routes));
+        handler.afterPropertiesSet();
+        server = RSocketServer.create(handler.responder())
+                .bind(TcpServerTransport.create("localhost", 0))
+                .block();
+
+        var meterRegistry = new SimpleMeterRegistry();
+        var retryPolicy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(50), 0.5,
+                Duration.ofSeconds(1), 20, 10, meterRegistry);
+        var resiliencePolicy = new ResiliencePolicy(CircuitBreakerRegistry.ofDefaults(), meterRegistry);
+        var hedgingPolicy = new HedgingPolicy(false, 0.95, Duration.ofMillis(20), Duration.ofSeconds(1), 1000,
+                10, 5, meterRegistry);
+        var requesterBuilder = RSocketRequester.builder()
+                .dataMimeType(MediaType.APPLICATION_JSON);
+        client = new MoviesInfoRSocketClient(requesterBuilder, strategies, "localhost", server.address().getPort(),
+                meterRegistry, retryPolicy, resiliencePolicy, hedgingPolicy);
+        ReflectionTestUtils.setField(client, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(client, "singleFlightEnabled", true);
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.dispose();
+    }
+
+    @Test
+    void retrieveMovieInfo() {
+        // when
+        var movieInfo = client.retrieveMovieInfo("abc");
+
+        // then
+        StepVerifier.create(movieInfo)
+                .expectNextMatches(info -> info.getMovieInfoId().equals("abc")
+                        && info.getRelease_date().equals(LocalDate.parse("2005-06-15")))
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveMovieInfo_emptyResponseIsNotFound() {
+        // when
+        var movieInfo = client.retrieveMovieInfo("missing");
+
+        // then
+        StepVerifier.create(movieInfo)
+                .expectErrorMatches(ex -> ex instanceof MoviesInfoClientException
+                        && ((MoviesInfoClientException) ex).getStatusCode() == 404)
+                .verify();
+        assertEquals(1, routes.calls.get());
+    }
+
+    @Test
+    void retrieveMovieInfo_serverErrorIsRetried() {
+        // when
+        var movieInfo = client.retrieveMovieInfo("broken");
+
+        // then
+        StepVerifier.create(movieInfo)
+                .expectError(MoviesInfoServerException.class)
+                .verify();
+        assertEquals(4, routes.calls.get());
+    }
+
+    @Test
+    void retrieveMovieInfo_invalidRequestIsNotRetried() {
+        // when
+        var movieInfo = client.retrieveMovieInfo("invalid");
+
+        // then
+        StepVerifier.create(movieInfo)
+                .expectErrorMatches(ex -> ex instanceof MoviesInfoClientException
+                        && ((MoviesInfoClientException) ex).getStatusCode() == 400)
+                .verify();
+        assertEquals(1, routes.calls.get());
+    }
+
+    @Test
+    void retrieveMovieInfos_requestStream() {
+        // when
+        var movieInfos = client.retrieveMovieInfos(List.of("abc", "def", "abc"));
+
+        // then
+        StepVerifier.create(movieInfos)
+                .expectNextMatches(info -> info.getMovieInfoId().equals("abc"))
+                .expectNextMatches(info -> info.getMovieInfoId().equals("def"))
+                .verifyComplete();
+        assertEquals(1, routes.calls.get());
+    }
+
+    @Test
+    void retrieveMovieInfos_retryAfterPartialResponseEmitsNoDuplicates() {
+        // when
+        var movieInfos = client.retrieveMovieInfos(List.of("abc", "flaky"));
+
+        // then
+        StepVerifier.create(movieInfos)
+                .expectNextMatches(info -> info.getMovieInfoId().equals("abc"))
+                .expectNextMatches(info -> info.getMovieInfoId().equals("flaky"))
+                .verifyComplete();
+        assertEquals(2, routes.calls.get());
+    }
+
+    @Test
+    void retrieveMovieInfoStream_propagatesDemand() {
+        // when
+        var stream = client.retrieveMovieInfoStream();
+
+        // then
+        StepVerifier.create(stream, 2)
+                .expectNextCount(2)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void retrieveMovieInfoStreamBuffers_encodesEventsAsNdjson() {
+        // when
+        var lines = client.retrieveMovieInfoStreamBuffers()
+                .map(buffer -> {
+                    var line = buffer.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(buffer);
+                    return line;
+                })
+                .take(2);
+
+        // then
+        StepVerifier.create(lines)
+                .expectNextMatches(line -> line.startsWith("{\"sequence\":1,\"operation\":\"insert\","
+                        + "\"movieInfoId\":\"id-0\"") && line.endsWith("\n"))
+                .expectNextMatches(line -> line.startsWith("{\"sequence\":2,\"operation\":\"insert\","
+                        + "\"movieInfoId\":\"id-1\"") && line.endsWith("\n"))
+                .verifyComplete();
+    }
+
+    @Controller
+    static class MovieInfoRoutes {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private static MovieInfo movieInfo(String id) {
+            return new MovieInfo(id, "Batman Begins", 2005, List.of("Christian Bale"),
+                    LocalDate.parse("2005-06-15"));
+        }
+
+        @MessageMapping("movieinfos.{id}")
+        Mono<MovieInfo> getMovieInfoById(@DestinationVariable String id) {
+            calls.incrementAndGet();
+            switch (id) {
+                case "missing":
+                    return Mono.empty();
+                case "broken":
+                    return Mono.error(new IllegalStateException("database unavailable"));
+                case "invalid":
+                    return Mono.error(new InvalidException("not a movie info id"));
+                default:
+                    return Mono.just(movieInfo(id));
+            }
+        }
+
+        @MessageMapping("movieinfos.ids")
+        Flux<MovieInfo> getMovieInfosByIds(@Payload List<String> ids) {
+            var movieInfos = Flux.fromIterable(ids).map(MovieInfoRoutes::movieInfo);
+            if (calls.incrementAndGet() == 1 && ids.contains("flaky")) {
+                return movieInfos.take(1).concatWith(Flux.error(new IllegalStateException("connection reset")));
+            }
+            return movieInfos;
+        }
+
+        @MessageMapping("movieinfos.stream")
+        Flux<MovieInfoEvent> getMovieInfoEvents() {
+            return Flux.interval(Duration.ofMillis(10))
+                    .map(tick -> new MovieInfoEvent(tick + 1, "insert", movieInfo("id-" + tick)));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.reactivespring.client;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.util.HedgingPolicy;
+import com.reactivespring.util.ResiliencePolicy;
+import com.reactivespring.util.RetryPolicy;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+class MoviesInfoRestClientTest {
+
+    private final AtomicInteger downstreamCalls = new AtomicInteger();
+
+    private MoviesInfoRestClient client(HttpStatus status) {
+        return client(status, "", false);
+    }
+
+    private MoviesInfoRestClient client(HttpStatus status, String body, boolean cacheEnabled) {
+        var webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    downstreamCalls.incrementAndGet();
+                    return Mono.just(ClientResponse.create(status)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build());
+                })
+                .build();
+        var meterRegistry = new SimpleMeterRegistry();
+        var retryPolicy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(50), 0.5,
+                Duration.ofSeconds(1), 20, 10, meterRegistry);
+        var resiliencePolicy = new ResiliencePolicy(CircuitBreakerRegistry.ofDefaults(), meterRegistry);
+        var hedgingPolicy = new HedgingPolicy(false, 0.95, Duration.ofMillis(20), Duration.ofSeconds(1), 1000,
+                10, 5, meterRegistry);
+        var client = new MoviesInfoRestClient(webClient, meterRegistry, retryPolicy, resiliencePolicy, hedgingPolicy);
+        ReflectionTestUtils.setField(client, "moviesInfoUrl", "http://localhost:8080/v1/movieinfos");
+        ReflectionTestUtils.setField(client, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(client, "singleFlightEnabled", true);
+        ReflectionTestUtils.setField(client, "negativeCacheEnabled", true);
+        ReflectionTestUtils.setField(client, "negativeCacheMaximumSize", 100L);
+        ReflectionTestUtils.setField(client, "negativeCacheTtl", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(client, "cacheEnabled", cacheEnabled);
+        ReflectionTestUtils.setField(client, "cacheMaximumSize", 100L);
+        ReflectionTestUtils.setField(client, "cacheTtl", Duration.ofSeconds(60));
+        ReflectionTestUtils.setField(client, "cacheStaleWhileRevalidate", Duration.ofMinutes(5));
+        client.init();
+        return client;
+    }
+
+    @Test
+    void retrieveMovieInfo_notFoundIsCached() {
+        // given
+        var client = client(HttpStatus.NOT_FOUND);
+
+        // when
+        StepVerifier.create(client.retrieveMovieInfo("abc"))
+                .expectErrorMatches(ex -> ex instanceof MoviesInfoClientException
+                        && ((MoviesInfoClientException) ex).getStatusCode() == 404)
+                .verify();
+        StepVerifier.create(client.retrieveMovieInfo("abc"))
+                .expectError(MoviesInfoClientException.class)
+                .verify();
+
+        // then
+        assertEquals(1, downstreamCalls.get());
+    }
+
+    @Test
+    void retrieveMovieInfo_notFoundInvalidatedByStream() {
+        // given
+        var client = client(HttpStatus.NOT_FOUND);
+        client.retrieveMovieInfo("abc").onErrorResume(ex -> Mono.empty()).block();
+
+        // when
+        client.refreshCachedMovieInfo(new MovieInfoEvent(1, "insert", new MovieInfo("abc", "Batman Begins", 2005,
+                List.of("Christian Bale"), LocalDate.parse("2005-06-15"))));
+        client.retrieveMovieInfo("abc").onErrorResume(ex -> Mono.empty()).block();
+
+        // then
+        assertEquals(2, downstreamCalls.get());
+    }
+
+    @Test
+    void retrieveMovieInfo_deleteFromStreamEvictsCachedMovieInfo() {
+        // given
+        var client = spy(client(HttpStatus.OK, "{\"movieInfoId\":\"abc\",\"name\":\"Batman Begins\","
+                + "\"year\":2005,\"cast\":[\"Christian Bale\"],\"release_date\":\"2005-06-15\"}", true));
+        StepVerifier.create(client.retrieveMovieInfo("abc"))
+                .expectNextMatches(movieInfo -> movieInfo.getName().equals("Batman Begins"))
+                .verifyComplete();
+        var delete = new MovieInfoEvent(2, MovieInfoEvent.DELETE, new MovieInfo("abc", null, null, null, null));
+        doReturn(Flux.concat(Flux.just(delete), Flux.never())).when(client).retrieveMovieInfoEvents(null);
+        var synchronizer = new MovieInfoCacheSynchronizer(client, Duration.ofMillis(10), Duration.ofMillis(50));
+
+        // when
+        synchronizer.start();
+        synchronizer.stop();
+
+        // then
+        StepVerifier.create(client.retrieveMovieInfo("abc"))
+                .expectErrorMatches(ex -> ex instanceof MoviesInfoClientException
+                        && ((MoviesInfoClientException) ex).getStatusCode() == 404)
+                .verify();
+        assertEquals(1, downstreamCalls.get());
+    }
+
+    @Test
+    void retrieveMovieInfoStream_leavesOutDeletes() {
+        // given
+        var client = spy(client(HttpStatus.OK));
+        var batmanBegins = new MovieInfo("abc", "Batman Begins", 2005,
+                List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+        doReturn(Flux.just(new MovieInfoEvent(1, "insert", batmanBegins),
+                new MovieInfoEvent(2, MovieInfoEvent.DELETE, new MovieInfo("abc", null, null, null, null))))
+                .when(client).retrieveMovieInfoEvents(null);
+
+        // when
+        var movieInfos = client.retrieveMovieInfoStream();
+
+        // then
+        StepVerifier.create(movieInfos)
+                .expectNext(batmanBegins)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,96 @@
+package com.reactivespring.config;
+
+import com.reactivespring.domain.Review;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Payload size and encode/decode CPU time of a large review list with the JSON and the Smile codecs the services
+ * use. Not part of {@code test}; run it with {@code ./gradlew :movies-service:benchmark}.
+ */
+@Tag("benchmark")
+class CodecBenchmarkTest {
+
+    private static final int REVIEWS = 10_000;
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 200;
+    private static final ResolvableType REVIEW_TYPE = ResolvableType.forClass(Review.class);
+
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+    private final List<Review> reviews = LongStream.range(0, REVIEWS)
+            .mapToObj(i -> new Review(String.valueOf(i), i % 500, "Review number " + i + " of a great movie",
+                    (double) (i % 10)))
+            .collect(Collectors.toList());
+
+    @Test
+    void jsonVersusSmile() {
+        var smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+        var json = measure("json", new Jackson2JsonEncoder(), new Jackson2JsonDecoder(), MediaType.APPLICATION_JSON);
+        var smile = measure("smile", new Jackson2SmileEncoder(smileMapper), new Jackson2SmileDecoder(smileMapper),
+                CodecConfig.APPLICATION_SMILE);
+
+        assertTrue(smile < json, "smile " + smile + " bytes, json " + json + " bytes");
+    }
+
+    private int measure(String name, Encoder<Object> encoder, Decoder<Object> decoder, MediaType mediaType) {
+        var payload = encode(encoder, mediaType);
+        assertEquals(reviews, decode(decoder, mediaType, payload));
+
+        var encodeNanos = cpuNanosPerOp(() -> encode(encoder, mediaType));
+        var decodeNanos = cpuNanosPerOp(() -> decode(decoder, mediaType, payload));
+        System.out.printf("%-6s %,10d bytes  encode %,8d us/op  decode %,8d us/op%n",
+                name, payload.length, encodeNanos / 1000, decodeNanos / 1000);
+        return payload.length;
+    }
+
+    private byte[] encode(Encoder<Object> encoder, MediaType mediaType) {
+        var joined = DataBufferUtils.join(
+                        encoder.encode(Flux.fromIterable(reviews), bufferFactory, REVIEW_TYPE, mediaType, Map.of()))
+                .block();
+        var bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        DataBufferUtils.release(joined);
+        return bytes;
+    }
+
+    private List<Object> decode(Decoder<Object> decoder, MediaType mediaType, byte[] payload) {
+        Mono<DataBuffer> input = Mono.fromSupplier(() -> bufferFactory.wrap(payload));
+        return decoder.decode(input, REVIEW_TYPE, mediaType, Map.of()).collectList().block();
+    }
+
+    private static long cpuNanosPerOp(Supplier<?> op) {
+        var threadMXBean = ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP; i++) {
+            op.get();
+        }
+        var start = threadMXBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            op.get();
+        }
+        return (threadMXBean.getCurrentThreadCpuTime() - start) / ITERATIONS;
+    }
+}
@@ -0,0 +1,88 @@
+package com.reactivespring.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebClientConfigTest {
+
+    private final Set<String> remoteAddresses = ConcurrentHashMap.newKeySet();
+    private DisposableServer server;
+
+    private DisposableServer server(HttpProtocol... protocols) {
+        return HttpServer.create()
+                .port(0)
+                .protocol(protocols)
+                .route(routes -> routes.get("/v1/movieinfos/{id}", (request, response) -> {
+                    remoteAddresses.add(String.valueOf(request.remoteAddress()));
+                    // HTTP/2 streams are handed to the route as HTTP/1.1 requests tagged with their stream id
+                    var streamId = request.requestHeaders().get("x-http2-stream-id");
+                    return response.sendString(Mono.just(streamId != null ? "h2c" : "http/1.1"));
+                }))
+                .bindNow();
+    }
+
+    private WebClient webClient(HttpProtocol protocol) {
+        var properties = new HttpClientProperties();
+        properties.setProtocols(List.of(protocol));
+        return new WebClientConfig().moviesInfoWebClient(WebClient.builder(), properties);
+    }
+
+    private Flux<String> concurrentCalls(WebClient webClient, int calls) {
+        return Flux.range(0, calls)
+                .flatMap(i -> webClient.get()
+                        .uri("http://localhost:" + server.port() + "/v1/movieinfos/" + i)
+                        .retrieve()
+                        .bodyToMono(String.class));
+    }
+
+    @AfterEach
+    void afterEach() {
+        server.disposeNow();
+    }
+
+    @Test
+    void moviesInfoWebClient_http11OneConnectionPerConcurrentCall() {
+        // given
+        server = server(HttpProtocol.HTTP11);
+
+        // when
+        var protocols = concurrentCalls(webClient(HttpProtocol.HTTP11), 20);
+
+        // then
+        StepVerifier.create(protocols.distinct())
+                .expectNext("http/1.1")
+                .verifyComplete();
+        assertTrue(remoteAddresses.size() > 1, "connections: " + remoteAddresses.size());
+    }
+
+    @Test
+    void moviesInfoWebClient_h2cMultiplexesConnections() {
+        // given
+        server = server(HttpProtocol.HTTP11, HttpProtocol.H2C);
+        var webClient = webClient(HttpProtocol.H2C);
+        // the first call opens the connection that the burst below then shares
+        concurrentCalls(webClient, 1).blockLast();
+
+        // when
+        var protocols = concurrentCalls(webClient, 20);
+
+        // then
+        StepVerifier.create(protocols.distinct())
+                .expectNext("h2c")
+                .verifyComplete();
+        assertTrue(remoteAddresses.size() < 20, "connections: " + remoteAddresses.size());
+    }
+}
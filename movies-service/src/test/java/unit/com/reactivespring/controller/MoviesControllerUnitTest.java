@@ -1,4 +1,175 @@
 package com.reactivespring.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactivespring.ReviewsRestClient;
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewSummary;
+import com.reactivespring.exception.ReviewsServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
 public class MoviesControllerUnitTest {
+
+    private final MoviesInfoRestClient moviesInfoRestClient = mock(MoviesInfoRestClient.class);
+    private final ReviewsRestClient reviewsRestClient = mock(ReviewsRestClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MoviesController moviesController = new MoviesController(moviesInfoRestClient, reviewsRestClient,
+            meterRegistry, new ObjectMapper());
+    private final AtomicInteger requested = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(moviesController, "latencyBudgetEnabled", true);
+        ReflectionTestUtils.setField(moviesController, "defaultLatencyBudget", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(moviesController, "feedConcurrency", 4);
+        ReflectionTestUtils.setField(moviesController, "feedPrefetch", 8);
+        when(moviesInfoRestClient.retrieveMovieInfoStream()).thenReturn(Flux.range(0, 20)
+                .doOnRequest(n -> requested.addAndGet((int) Math.min(n, Integer.MAX_VALUE)))
+                .map(i -> new MovieInfo(String.valueOf(i), "Movie " + i, 2005, List.of("Christian Bale"),
+                        LocalDate.parse("2005-06-15"))));
+    }
+
+    @Test
+    void retrieveMovieFeed_boundsConcurrentReviewLookups() {
+        // given
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+        when(reviewsRestClient.retrieveReviews(anyString())).thenAnswer(invocation -> Flux.defer(() -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    return Flux.just(new Review("1", Long.valueOf(invocation.getArgument(0)), "Awesome Movie", 9.0))
+                            .delayElements(Duration.ofMillis(20));
+                })
+                .doOnTerminate(inFlight::decrementAndGet));
+
+        // when
+        var feed = moviesController.retrieveMovieFeed(null);
+
+        // then
+        StepVerifier.create(feed)
+                .recordWith(ArrayList::new)
+                .expectNextCount(20)
+                .consumeRecordedWith(movies -> movies.forEach(movie -> assertEquals(1, movie.getReviewList().size())))
+                .verifyComplete();
+        assertEquals(4, maxInFlight.get());
+    }
+
+    @Test
+    void retrieveMovieFeed_respectsClientDemand() {
+        // given
+        when(reviewsRestClient.retrieveReviews(anyString())).thenReturn(Flux.empty());
+
+        // when
+        var feed = moviesController.retrieveMovieFeed(null);
+
+        // then
+        StepVerifier.create(feed, 1)
+                .expectNextCount(1)
+                .thenAwait(Duration.ofMillis(100))
+                .thenCancel()
+                .verify();
+        assertEquals(8, requested.get());
+    }
+
+    @Test
+    void retrieveMovieFeed_summaryView() {
+        // given
+        when(reviewsRestClient.retrieveReviewSummary(anyString())).thenAnswer(invocation -> Mono.just(
+                new ReviewSummary(Long.valueOf(invocation.getArgument(0)), 1, 9.0, Map.of(9, 1L))));
+
+        // when
+        var feed = moviesController.retrieveMovieFeed(MoviesController.SUMMARY_VIEW);
+
+        // then
+        StepVerifier.create(feed)
+                .recordWith(ArrayList::new)
+                .expectNextCount(20)
+                .consumeRecordedWith(movies -> movies.forEach(movie -> {
+                    assertNull(movie.getReviewList());
+                    assertEquals(1, movie.getReviewSummary().getCount());
+                }))
+                .verifyComplete();
+        verify(reviewsRestClient, never()).retrieveReviews(anyString());
+    }
+
+    @Test
+    void retrieveMovieFeed_failedReviewsDegradeOneMovie() {
+        // given
+        when(reviewsRestClient.retrieveReviews(anyString())).thenAnswer(invocation ->
+                "3".equals(invocation.getArgument(0))
+                        ? Flux.error(new ReviewsServerException("down"))
+                        : Flux.empty());
+
+        // when
+        var feed = moviesController.retrieveMovieFeed(null)
+                .filter(Movie::isDegraded);
+
+        // then
+        StepVerifier.create(feed)
+                .expectNextMatches(movie -> movie.getMovieInfo().getMovieInfoId().equals("3"))
+                .verifyComplete();
+        assertEquals(1, meterRegistry.get("movies.degraded").tag("reason", "error").counter().count());
+    }
+
+    @Test
+    void retrieveMovieById_sequentialBudgetCountsMovieInfoLatency() {
+        // given
+        ReflectionTestUtils.setField(moviesController, "concurrentFanOut", false);
+        ReflectionTestUtils.setField(moviesController, "maxLatencyBudget", Duration.ofSeconds(5));
+        var movieInfo = new MovieInfo("abc", "Batman Begins", 2005, List.of("Christian Bale"),
+                LocalDate.parse("2005-06-15"));
+        when(moviesInfoRestClient.retrieveMovieInfo("abc"))
+                .thenReturn(Mono.just(movieInfo).delayElement(Duration.ofMillis(300)));
+        when(reviewsRestClient.retrieveReviews("abc"))
+                .thenReturn(Flux.just(new Review("1", 1L, "Awesome Movie", 9.0)).delayElements(Duration.ofMillis(300)));
+
+        // when
+        var movie = moviesController.retrieveMovieById("abc", null, "400ms");
+
+        // then
+        StepVerifier.create(movie)
+                .expectNextMatches(Movie::isDegraded)
+                .verifyComplete();
+        assertEquals(1, meterRegistry.get("movies.degraded").tag("reason", "timeout").counter().count());
+    }
+
+    @Test
+    void retrieveMovieById_reviewsServerErrorDegrades() {
+        // given
+        var movieInfo = new MovieInfo("abc", "Batman Begins", 2005, List.of("Christian Bale"),
+                LocalDate.parse("2005-06-15"));
+        when(moviesInfoRestClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+        when(reviewsRestClient.retrieveReviews("abc")).thenReturn(Flux.error(new ReviewsServerException("down")));
+
+        // when
+        var movie = moviesController.retrieveMovieById("abc", null, null);
+
+        // then
+        StepVerifier.create(movie)
+                .expectNextMatches(result -> result.isDegraded() && result.getMovieInfo().equals(movieInfo))
+                .verifyComplete();
+        assertEquals(1, meterRegistry.get("movies.degraded").tag("reason", "error").counter().count());
+    }
 }
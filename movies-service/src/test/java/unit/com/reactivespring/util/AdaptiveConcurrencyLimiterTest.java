@@ -0,0 +1,111 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 2, 6,
+            Duration.ofMillis(100), 0.5, RetryPolicy::isTransient, meterRegistry, nanos::get);
+
+    @Test
+    void limit_rejectsBeyondLimit() {
+        // given
+        var pending = Sinks.<String>one();
+        for (int i = 0; i < 4; i++) {
+            limiter.limit(pending.asMono()).subscribe();
+        }
+
+        // when
+        var result = limiter.limit(Mono.just("movie"));
+
+        // then
+        StepVerifier.create(result)
+                .expectError(ConcurrencyLimitExceededException.class)
+                .verify();
+        assertEquals(1, meterRegistry.get("concurrency.rejected").counter().count());
+
+        // when
+        pending.tryEmitValue("done");
+
+        // then
+        assertEquals(0, limiter.inFlightCount());
+        StepVerifier.create(limiter.limit(Mono.just("movie")))
+                .expectNext("movie")
+                .verifyComplete();
+    }
+
+    @Test
+    void limit_slowCallsDecreaseLimit() {
+        // given
+        var slow = Mono.fromCallable(() -> nanos.addAndGet(Duration.ofMillis(150).toNanos()));
+
+        // when
+        StepVerifier.create(limiter.limit(slow)).expectNextCount(1).verifyComplete();
+
+        // then
+        assertEquals(2, limiter.getLimit());
+
+        // when
+        StepVerifier.create(limiter.limit(slow)).expectNextCount(1).verifyComplete();
+
+        // then
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void limit_transientErrorsDecreaseLimit() {
+        // when
+        StepVerifier.create(limiter.limit(Mono.error(new MoviesInfoServerException("down"))))
+                .expectError(MoviesInfoServerException.class)
+                .verify();
+        StepVerifier.create(limiter.limit(Mono.error(new MoviesInfoClientException("not found", 404))))
+                .expectError(MoviesInfoClientException.class)
+                .verify();
+
+        // then
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void limit_fastCallsUnderLoadIncreaseLimit() {
+        // given
+        var pending = Sinks.<String>one();
+        limiter.limit(pending.asMono()).subscribe();
+        limiter.limit(pending.asMono()).subscribe();
+
+        // when
+        StepVerifier.create(limiter.limit(Mono.just("movie"))).expectNext("movie").verifyComplete();
+        StepVerifier.create(limiter.limit(Mono.just("movie"))).expectNext("movie").verifyComplete();
+        StepVerifier.create(limiter.limit(Mono.just("movie"))).expectNext("movie").verifyComplete();
+
+        // then
+        assertEquals(6, limiter.getLimit());
+        assertEquals(6, meterRegistry.get("concurrency.limit").gauge().value());
+    }
+
+    @Test
+    void limit_cancelReleasesWithoutAdjusting() {
+        // when
+        var subscription = limiter.limit(Mono.never()).subscribe();
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        subscription.dispose();
+
+        // then
+        assertEquals(0, limiter.inFlightCount());
+        assertEquals(4, limiter.getLimit());
+    }
+}
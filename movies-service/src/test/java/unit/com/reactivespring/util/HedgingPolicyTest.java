@@ -0,0 +1,118 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgingPolicyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private HedgingPolicy hedgingPolicy(double budgetMaxTokens) {
+        return new HedgingPolicy(true, 0.9, Duration.ofMillis(10), Duration.ofMillis(100), 10,
+                0, budgetMaxTokens, meterRegistry);
+    }
+
+    // the first attempt stalls, every later one answers immediately
+    private Mono<String> stallingOnce() {
+        return Mono.defer(() -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofSeconds(5)).thenReturn("primary")
+                : Mono.just("hedge"));
+    }
+
+    private double count(String name, String result) {
+        return meterRegistry.get(name).tag("downstream", "test").tag("result", result).counter().count();
+    }
+
+    @Test
+    void apply_slowPrimaryIsHedged() {
+        // when
+        var result = hedgingPolicy(5).apply("test", stallingOnce());
+
+        // then
+        StepVerifier.create(result)
+                .expectNext("hedge")
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+        assertEquals(2, attempts.get());
+        assertEquals(1, meterRegistry.get("hedge.sent").counter().count());
+        assertEquals(1, count("hedge.wins", "hedge"));
+    }
+
+    @Test
+    void apply_fastPrimaryIsNotHedged() {
+        // when
+        var result = hedgingPolicy(5).apply("test", Mono.fromCallable(() -> {
+            attempts.incrementAndGet();
+            return "primary";
+        }));
+
+        // then
+        StepVerifier.create(result)
+                .expectNext("primary")
+                .verifyComplete();
+        assertEquals(1, attempts.get());
+        assertEquals(0, meterRegistry.get("hedge.sent").counter().count());
+    }
+
+    @Test
+    void apply_budgetCapsHedges() {
+        // given
+        var hedgingPolicy = hedgingPolicy(1);
+        StepVerifier.create(hedgingPolicy.apply("test", stallingOnce()))
+                .expectNext("hedge")
+                .verifyComplete();
+        attempts.set(0);
+
+        // when
+        var result = hedgingPolicy.apply("test", stallingOnce());
+
+        // then
+        StepVerifier.withVirtualTime(() -> result)
+                .thenAwait(Duration.ofSeconds(5))
+                .expectNext("primary")
+                .verifyComplete();
+        assertEquals(1, meterRegistry.get("hedge.sent").counter().count());
+    }
+
+    @Test
+    void apply_primaryErrorIsNotHedged() {
+        // when
+        var result = hedgingPolicy(5).apply("test", Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(new IllegalStateException("down"));
+        }));
+
+        // then
+        StepVerifier.create(result)
+                .expectError(IllegalStateException.class)
+                .verify();
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void hedgeDelay_followsObservedPercentile() {
+        // given
+        var hedgingPolicy = hedgingPolicy(5);
+        assertEquals(Duration.ofMillis(100), hedgingPolicy.hedgeDelay("test"));
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            StepVerifier.create(hedgingPolicy.apply("test", Mono.delay(Duration.ofMillis(30)).thenReturn("primary")))
+                    .expectNext("primary")
+                    .verifyComplete();
+        }
+
+        // then
+        var delay = hedgingPolicy.hedgeDelay("test").toMillis();
+        assertTrue(delay >= 30 && delay < 100, "delay: " + delay);
+    }
+}
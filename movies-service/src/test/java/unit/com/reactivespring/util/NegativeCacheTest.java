@@ -0,0 +1,81 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NegativeCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final NegativeCache<String> negativeCache = new NegativeCache<>("test", 100,
+            Duration.ofSeconds(30), new SimpleMeterRegistry(), nanos::get);
+
+    @Test
+    void markMissing() {
+        // when
+        negativeCache.markMissing("abc");
+
+        // then
+        assertTrue(negativeCache.isMissing("abc"));
+        assertFalse(negativeCache.isMissing("def"));
+    }
+
+    @Test
+    void markMissing_expires() {
+        // given
+        negativeCache.markMissing("abc");
+
+        // when
+        nanos.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        // then
+        assertFalse(negativeCache.isMissing("abc"));
+    }
+
+    @Test
+    void invalidate() {
+        // given
+        negativeCache.markMissing("abc");
+
+        // when
+        negativeCache.invalidate("abc");
+
+        // then
+        assertFalse(negativeCache.isMissing("abc"));
+    }
+
+    @Test
+    void markMissing_ignoredWhenInvalidatedDuringLookup() {
+        // given
+        var version = negativeCache.version();
+        negativeCache.invalidate("abc");
+
+        // when
+        negativeCache.markMissing("abc", version);
+
+        // then
+        assertFalse(negativeCache.isMissing("abc"));
+        negativeCache.markMissing("abc", negativeCache.version());
+        assertTrue(negativeCache.isMissing("abc"));
+    }
+
+    @Test
+    void invalidateAll_forgetsMarksAndRejectsRunningLookups() {
+        // given
+        negativeCache.markMissing("abc");
+        var version = negativeCache.version();
+
+        // when
+        negativeCache.invalidateAll();
+        negativeCache.markMissing("def", version);
+
+        // then
+        assertFalse(negativeCache.isMissing("abc"));
+        assertFalse(negativeCache.isMissing("def"));
+    }
+}
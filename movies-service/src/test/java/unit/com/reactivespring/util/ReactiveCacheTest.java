@@ -0,0 +1,122 @@
+package com.reactivespring.util;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReactiveCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Mono<String> loader(String key) {
+        if (key.startsWith("missing")) {
+            loads.incrementAndGet();
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> key + "-" + loads.incrementAndGet());
+    }
+
+    private ReactiveCache<String, String> cache(long maximumSize) {
+        return new ReactiveCache<>("test", this::loader, maximumSize, Duration.ofSeconds(10),
+                Duration.ofSeconds(60), meterRegistry, ticker, Runnable::run);
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("result", result).functionCounter().count();
+    }
+
+    @Test
+    void get_hitAfterMiss() {
+        // given
+        var cache = cache(100);
+
+        // when
+        cache.get("abc").block();
+
+        // then
+        StepVerifier.create(cache.get("abc"))
+                .expectNext("abc-1")
+                .verifyComplete();
+        assertEquals(1, loads.get());
+        assertEquals(1, gets("hit"));
+        assertEquals(1, gets("miss"));
+    }
+
+    @Test
+    void get_staleWhileRevalidate() {
+        // given
+        var cache = cache(100);
+        cache.get("abc").block();
+
+        // when
+        advance(Duration.ofSeconds(11));
+
+        // then: the stale value is served while the reload replaces it
+        StepVerifier.create(cache.get("abc"))
+                .expectNext("abc-1")
+                .verifyComplete();
+        StepVerifier.create(cache.get("abc"))
+                .expectNext("abc-2")
+                .verifyComplete();
+    }
+
+    @Test
+    void get_expiredAfterStaleWindow() {
+        // given
+        var cache = cache(100);
+        cache.get("abc").block();
+
+        // when
+        advance(Duration.ofSeconds(71));
+
+        // then
+        StepVerifier.create(cache.get("abc"))
+                .expectNext("abc-2")
+                .verifyComplete();
+    }
+
+    @Test
+    void get_emptyIsNotCached() {
+        // given
+        var cache = cache(100);
+
+        // when
+        StepVerifier.create(cache.get("missing"))
+                .verifyComplete();
+        cache.get("missing").block();
+
+        // then
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_evictsBeyondMaximumSize() {
+        // given
+        var cache = cache(2);
+
+        // when
+        cache.get("a").block();
+        cache.get("b").block();
+        cache.get("c").block();
+        cache.get("d").block();
+
+        // then
+        assertEquals(2, cache.estimatedSize());
+        assertEquals(2, meterRegistry.get("cache.evictions").functionCounter().count());
+    }
+}
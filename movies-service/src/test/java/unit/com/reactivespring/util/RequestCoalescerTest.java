@@ -0,0 +1,92 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestCoalescerTest {
+
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    private Mono<Map<String, String>> batchLoader(List<String> keys) {
+        batches.add(keys);
+        return Flux.fromIterable(keys)
+                .filter(key -> !key.startsWith("missing"))
+                .collectMap(Function.identity(), String::toUpperCase);
+    }
+
+    @Test
+    void load_coalescesConcurrentLookups() {
+        // given
+        var coalescer = new RequestCoalescer<String, String>(this::batchLoader, key -> Mono.empty(),
+                100, Duration.ofMillis(50));
+
+        // when
+        var results = Flux.range(0, 20)
+                .flatMap(i -> coalescer.load("key" + (i % 5)))
+                .collect(Collectors.toSet());
+
+        // then
+        StepVerifier.create(results)
+                .assertNext(values -> assertEquals(5, values.size()))
+                .verifyComplete();
+        assertEquals(1, batches.size());
+        assertEquals(5, batches.get(0).size());
+    }
+
+    @Test
+    void load_splitsAtMaxBatchSize() {
+        // given
+        var coalescer = new RequestCoalescer<String, String>(this::batchLoader, key -> Mono.empty(),
+                4, Duration.ofSeconds(5));
+
+        // when
+        var results = Flux.range(0, 8)
+                .flatMap(i -> coalescer.load("key" + i))
+                .collectList();
+
+        // then
+        StepVerifier.create(results)
+                .assertNext(values -> assertEquals(8, values.size()))
+                .verifyComplete();
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    void load_missingKey() {
+        // given
+        var coalescer = new RequestCoalescer<String, String>(this::batchLoader,
+                key -> Mono.error(new IllegalArgumentException("not found: " + key)),
+                100, Duration.ofMillis(10));
+
+        // then
+        StepVerifier.create(coalescer.load("missing1"))
+                .expectErrorMessage("not found: missing1")
+                .verify();
+    }
+
+    @Test
+    void load_batchFailure() {
+        // given
+        var coalescer = new RequestCoalescer<String, String>(keys -> Mono.error(new IllegalStateException("down")),
+                key -> Mono.empty(), 100, Duration.ofMillis(10));
+
+        // then
+        StepVerifier.create(Flux.merge(coalescer.load("a"), coalescer.load("b")))
+                .expectErrorMessage("down")
+                .verify();
+        StepVerifier.create(coalescer.load("c"))
+                .expectErrorMessage("down")
+                .verify();
+    }
+}
@@ -0,0 +1,142 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.ResilienceConfig;
+import com.reactivespring.exception.ConcurrencyLimitExceededException;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResiliencePolicyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreakerRegistry circuitBreakerRegistry = new ResilienceConfig().circuitBreakerRegistry(
+            50, 100, Duration.ofSeconds(2), 4, 4, Duration.ofMinutes(1), 1, meterRegistry);
+    private final ResiliencePolicy resiliencePolicy = resiliencePolicy();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private ResiliencePolicy resiliencePolicy() {
+        var policy = new ResiliencePolicy(circuitBreakerRegistry, meterRegistry);
+        ReflectionTestUtils.setField(policy, "circuitBreakerEnabled", true);
+        ReflectionTestUtils.setField(policy, "concurrencyLimitEnabled", true);
+        ReflectionTestUtils.setField(policy, "initialLimit", 1);
+        ReflectionTestUtils.setField(policy, "minLimit", 1);
+        ReflectionTestUtils.setField(policy, "maxLimit", 1);
+        ReflectionTestUtils.setField(policy, "latencyThreshold", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(policy, "backoffRatio", 0.9);
+        return policy;
+    }
+
+    private Mono<String> failing(RuntimeException ex) {
+        return Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.error(ex);
+        });
+    }
+
+    @Test
+    void protect_opensOnServerErrorsAndFailsFast() {
+        // given
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(resiliencePolicy.protect("test", failing(new MoviesInfoServerException("down"))))
+                    .expectError(MoviesInfoServerException.class)
+                    .verify();
+        }
+
+        // when
+        var result = resiliencePolicy.protect("test", failing(new MoviesInfoServerException("down")));
+
+        // then
+        StepVerifier.create(result)
+                .expectError(CallNotPermittedException.class)
+                .verify();
+        assertEquals(4, calls.get());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreakerRegistry.circuitBreaker("test").getState());
+    }
+
+    @Test
+    void protect_clientErrorsKeepBreakerClosed() {
+        // when
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(resiliencePolicy.protect("test", failing(new MoviesInfoClientException("not found", 404))))
+                    .expectError(MoviesInfoClientException.class)
+                    .verify();
+        }
+
+        // then
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreakerRegistry.circuitBreaker("test").getState());
+    }
+
+    @Test
+    void protect_limitRejectionsNotRecordedByBreaker() {
+        // given
+        resiliencePolicy.protect("test", Mono.never()).subscribe();
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(resiliencePolicy.protect("test", Mono.just("movie")))
+                    .expectError(ConcurrencyLimitExceededException.class)
+                    .verify();
+        }
+
+        // then
+        var circuitBreaker = circuitBreakerRegistry.circuitBreaker("test");
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getMetrics().getNumberOfFailedCalls());
+    }
+
+    @Test
+    void protectOpening_releasesSlotOnceStreamOpens() {
+        // given
+        var stream = Flux.concat(Flux.just("review"), Flux.never());
+        StepVerifier.create(resiliencePolicy.protectOpening("test", stream))
+                .expectNext("review")
+                .thenCancel()
+                .verify();
+        resiliencePolicy.protectOpening("test", stream).subscribe();
+
+        // when
+        var call = resiliencePolicy.protect("test", Mono.just("movie"));
+
+        // then
+        StepVerifier.create(call)
+                .expectNext("movie")
+                .verifyComplete();
+        assertEquals(3, circuitBreakerRegistry.circuitBreaker("test").getMetrics().getNumberOfSuccessfulCalls());
+    }
+
+    @Test
+    void protectOpening_failsFastWhileOpen() {
+        // given
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(resiliencePolicy.protectOpening("test",
+                            Flux.<String>error(new MoviesInfoServerException("down"))))
+                    .expectError(MoviesInfoServerException.class)
+                    .verify();
+        }
+
+        // when
+        var stream = resiliencePolicy.protectOpening("test", Flux.defer(() -> {
+            calls.incrementAndGet();
+            return Flux.just("review");
+        }));
+
+        // then
+        StepVerifier.create(stream)
+                .expectError(CallNotPermittedException.class)
+                .verify();
+        assertEquals(0, calls.get());
+    }
+}
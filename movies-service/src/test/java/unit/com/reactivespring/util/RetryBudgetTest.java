@@ -0,0 +1,53 @@
+package com.reactivespring.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTest {
+
+    @Test
+    void tryAcquireRetry_startsFull() {
+        // given
+        var budget = new RetryBudget(10, 2);
+
+        // then
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+    }
+
+    @Test
+    void recordRequest_depositsPercentOfTraffic() {
+        // given
+        var budget = new RetryBudget(10, 2);
+        budget.tryAcquireRetry();
+        budget.tryAcquireRetry();
+
+        // when
+        for (int i = 0; i < 9; i++) {
+            budget.recordRequest();
+        }
+
+        // then: nine requests buy 0.9 of a retry, the tenth completes a token
+        assertFalse(budget.tryAcquireRetry());
+        budget.recordRequest();
+        assertTrue(budget.tryAcquireRetry());
+    }
+
+    @Test
+    void recordRequest_cappedAtMaxTokens() {
+        // given
+        var budget = new RetryBudget(50, 2);
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            budget.recordRequest();
+        }
+
+        // then
+        assertEquals(2.0, budget.availableTokens());
+    }
+}
@@ -0,0 +1,150 @@
+package com.reactivespring.util;
+
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private RetryPolicy retryPolicy(double budgetMaxTokens) {
+        return new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(40), 0.5,
+                Duration.ofMillis(200), 20, budgetMaxTokens, meterRegistry);
+    }
+
+    private Mono<String> failing(RuntimeException ex) {
+        return Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(ex);
+        });
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).tag("downstream", "test").counter().count();
+    }
+
+    @Test
+    void apply_retriesServerErrors() {
+        // when
+        var result = retryPolicy(10).apply("test", failing(new MoviesInfoServerException("down")));
+
+        // then
+        StepVerifier.create(result)
+                .expectError(MoviesInfoServerException.class)
+                .verify();
+        assertEquals(4, attempts.get());
+        assertEquals(3, count("retry.attempts"));
+    }
+
+    @Test
+    void apply_maxRetriesBoundsAttempts() {
+        // given
+        var retryPolicy = new RetryPolicy(1, Duration.ofMillis(10), Duration.ofMillis(40), 0.5,
+                Duration.ofMillis(200), 20, 10, meterRegistry);
+
+        // when
+        var result = retryPolicy.apply("test", failing(new MoviesInfoServerException("down")));
+
+        // then
+        StepVerifier.create(result)
+                .expectError(MoviesInfoServerException.class)
+                .verify();
+        assertEquals(2, attempts.get());
+        assertEquals(1, count("retry.attempts"));
+    }
+
+    @Test
+    void apply_clientErrorsNotRetried() {
+        // when
+        var result = retryPolicy(10).apply("test", failing(new MoviesInfoClientException("not found", 404)));
+
+        // then
+        StepVerifier.create(result)
+                .expectError(MoviesInfoClientException.class)
+                .verify();
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void apply_budgetDeniesRetries() {
+        // given
+        var retryPolicy = retryPolicy(1);
+
+        // when
+        var result = retryPolicy.apply("test", failing(new MoviesInfoServerException("down")));
+
+        // then
+        StepVerifier.create(result)
+                .expectError(MoviesInfoServerException.class)
+                .verify();
+        assertEquals(2, attempts.get());
+        assertEquals(1, count("retry.attempts"));
+        assertEquals(1, count("retry.denied"));
+    }
+
+    @Test
+    void apply_perAttemptTimeout() {
+        // given
+        var slow = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>never();
+        });
+
+        // when
+        var result = retryPolicy(10).apply("test", slow);
+
+        // then
+        StepVerifier.create(result)
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(5));
+        assertEquals(4, attempts.get());
+    }
+
+    @Test
+    void apply_attemptGuardSeesEveryTimeout() {
+        // given
+        var guardedFailures = new AtomicInteger();
+        var slow = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>never();
+        });
+
+        // when
+        var result = retryPolicy(10).apply("test", slow,
+                attempt -> attempt.doOnError(TimeoutException.class, ex -> guardedFailures.incrementAndGet()));
+
+        // then
+        StepVerifier.create(result)
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(5));
+        assertEquals(4, guardedFailures.get());
+    }
+
+    @Test
+    void backoff_exponentialWithJitter() {
+        // given
+        var retryPolicy = retryPolicy(10);
+
+        // then
+        for (int i = 0; i < 100; i++) {
+            var first = retryPolicy.backoff(0).toMillis();
+            var third = retryPolicy.backoff(2).toMillis();
+            var capped = retryPolicy.backoff(10).toMillis();
+            assertTrue(first >= 5 && first <= 10, "first: " + first);
+            assertTrue(third >= 20 && third <= 40, "third: " + third);
+            assertTrue(capped >= 20 && capped <= 40, "capped: " + capped);
+        }
+    }
+}
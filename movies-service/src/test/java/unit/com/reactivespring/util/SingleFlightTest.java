@@ -0,0 +1,93 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+    private final AtomicInteger downstreamCalls = new AtomicInteger();
+
+    private Mono<String> downstream(String key) {
+        return Mono.fromCallable(() -> {
+                    downstreamCalls.incrementAndGet();
+                    return key.toUpperCase();
+                })
+                .delayElement(Duration.ofMillis(100));
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("singleflight.calls").tag("result", result).counter().count();
+    }
+
+    @Test
+    void execute_concurrentCallersShareOneCall() {
+        // when
+        var results = Flux.range(0, 50)
+                .flatMap(i -> singleFlight.execute("abc", () -> downstream("abc")))
+                .collectList();
+
+        // then
+        StepVerifier.create(results)
+                .assertNext(values -> {
+                    assertEquals(50, values.size());
+                    assert values.stream().allMatch("ABC"::equals);
+                })
+                .verifyComplete();
+        assertEquals(1, downstreamCalls.get());
+        assertEquals(49, count("hit"));
+        assertEquals(1, count("miss"));
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void execute_entryRemovedAfterCompletion() {
+        // when
+        singleFlight.execute("abc", () -> downstream("abc")).block();
+        singleFlight.execute("abc", () -> downstream("abc")).block();
+
+        // then
+        assertEquals(2, downstreamCalls.get());
+        assertEquals(0, count("hit"));
+    }
+
+    @Test
+    void execute_errorIsNotRemembered() {
+        // given
+        singleFlight.execute("abc", () -> Mono.<String>error(new IllegalStateException("down")))
+                .onErrorResume(ex -> Mono.empty())
+                .block();
+
+        // then
+        StepVerifier.create(singleFlight.execute("abc", () -> downstream("abc")))
+                .expectNext("ABC")
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_cancelledWhenAllCallersCancel() {
+        // given
+        var cancelled = new AtomicInteger();
+        var slowCall = Mono.<String>never().doOnCancel(cancelled::incrementAndGet);
+
+        // when
+        var first = singleFlight.execute("abc", () -> slowCall).subscribe();
+        var second = singleFlight.execute("abc", () -> slowCall).subscribe();
+        first.dispose();
+
+        // then
+        assertEquals(0, cancelled.get());
+        second.dispose();
+        assertEquals(1, cancelled.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+}